@@ -0,0 +1,121 @@
+package com.modulo.benchmarks;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import com.modulo.functions.MaxFunction;
+import com.modulo.internal.AnnotatedFunctionAdapter;
+import com.modulo.internal.BinaryFunction;
+import com.modulo.internal.CalcFunction;
+import com.modulo.internal.Function;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calling a function implemented against {@link CalcFunction} compared with
+ * the same function written as an annotated module.
+ * <p>
+ * Both compute {@code max(a, b)}. The {@code binary} variants are the calls
+ * the evaluator makes; the {@code varargs} variants go through
+ * {@link CalcFunction#execute(double...)} as a plain {@code CalcFunction}
+ * plugin would, and show the cost of the argument array.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class DispatchBenchmark {
+
+    private BinaryFunction direct;
+    private AnnotatedFunctionAdapter annotated;
+    private CalcFunction directAsCalc;
+    private CalcFunction annotatedAsCalc;
+
+    private double a = 3.5;
+    private double b = -1.25;
+
+    /**
+     * {@code max} implemented directly against the interface.
+     */
+    static final class Max implements BinaryFunction {
+        @Override
+        public String getName() {
+            return "max";
+        }
+
+        @Override
+        public String getInsertText() {
+            return "max(";
+        }
+
+        @Override
+        public double execute(double a, double b) {
+            return Math.max(a, b);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        direct = new Max();
+        annotated = new AnnotatedFunctionAdapter(new MaxFunction(), MaxFunction.class.getAnnotation(Function.class));
+        directAsCalc = direct;
+        annotatedAsCalc = annotated;
+    }
+
+    @Benchmark
+    public double baseline() {
+        return Math.max(a, b);
+    }
+
+    @Benchmark
+    public double calcFunctionBinary() {
+        return direct.execute(a, b);
+    }
+
+    @Benchmark
+    public double calcFunctionVarargs() {
+        return directAsCalc.execute(new double[]{a, b});
+    }
+
+    @Benchmark
+    public double annotatedBinary() {
+        return annotated.execute(a, b);
+    }
+
+    @Benchmark
+    public double annotatedVarargs() {
+        return annotatedAsCalc.execute(new double[]{a, b});
+    }
+}
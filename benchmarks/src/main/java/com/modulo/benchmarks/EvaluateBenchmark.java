@@ -0,0 +1,134 @@
+package com.modulo.benchmarks;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import com.modulo.Registry.FunctionRegistry;
+import com.modulo.engine.CalculatorEngine;
+import com.modulo.engine.CompiledExpression;
+import com.modulo.engine.Expression;
+import com.modulo.engine.FunctionSet;
+import com.modulo.engine.Parser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and evaluating expressions of different shapes.
+ * <p>
+ * Every expression has a free variable {@code x}, so the optimizer cannot
+ * fold it to a constant. {@code parseAndEvaluate} is the cost of a new
+ * expression, {@code cachedEvaluate} that of one typed again in the
+ * calculator, and {@code evaluate} and {@code compiled} that of an
+ * expression evaluated repeatedly.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class EvaluateBenchmark {
+
+    /** Nesting depth of the {@code nested} expression. */
+    private static final int DEPTH = 100;
+
+    /** Number of terms of the {@code long} expression. */
+    private static final int TERMS = 40;
+
+    @Param({"short", "long", "nested"})
+    public String shape;
+
+    private String source;
+    private Parser parser;
+    private CalculatorEngine engine;
+    private Expression expression;
+    private CompiledExpression compiled;
+    private final double[] vars = new double[1];
+
+    // Not final, so the JIT cannot treat it as a constant
+    private double x = 0.75;
+
+    @Setup
+    public void setUp() {
+        FunctionRegistry.loadFunctions();
+        FunctionSet functions = FunctionRegistry.snapshot();
+        source = source(shape);
+        parser = new Parser(functions);
+        engine = new CalculatorEngine(functions);
+        expression = parser.parse(source, "x");
+        compiled = expression.compile();
+    }
+
+    static String source(String shape) {
+        return switch (shape) {
+            case "short" -> "x*2+1";
+            case "long" -> {
+                // Functions of every arity, with a few repeated subexpressions
+                StringBuilder sb = new StringBuilder("x");
+                for (int i = 1; i <= TERMS; i++) {
+                    switch (i % 4) {
+                        case 0 -> sb.append("+sin(x*").append(i).append(')');
+                        case 1 -> sb.append("-sqrt(x+").append(i).append(")*2");
+                        case 2 -> sb.append("+max(x,").append(i).append(")/3");
+                        default -> sb.append("*cos(x)+").append(i);
+                    }
+                }
+                yield sb.toString();
+            }
+            case "nested" -> "(1+x*".repeat(DEPTH) + "x" + ")".repeat(DEPTH);
+            default -> throw new IllegalArgumentException("Unknown shape: " + shape);
+        };
+    }
+
+    @Benchmark
+    public double parseAndEvaluate() {
+        return parser.parse(source, "x").evaluate(x);
+    }
+
+    @Benchmark
+    public double cachedEvaluate() {
+        return engine.parse(source, "x").evaluate(x);
+    }
+
+    @Benchmark
+    public double evaluate() {
+        return expression.evaluate(x);
+    }
+
+    @Benchmark
+    public double compiled() {
+        vars[0] = x;
+        return compiled.evaluate(vars);
+    }
+}
@@ -0,0 +1,94 @@
+package com.modulo.benchmarks;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import com.modulo.format.DoubleFormatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formatting results with {@link DoubleFormatter}.
+ * <p>
+ * {@code appendTo} is the batch and server path, writing into a reused
+ * builder; {@code legacy} is the regex-based formatting it replaced and
+ * {@code toString} the JDK.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class FormatBenchmark {
+
+    /**
+     * An integer, a short and a long fraction, and values printed in
+     * scientific notation.
+     */
+    @Param({"42", "2.5", "0.30000000000000004", "1.0E20", "1.5E-7"})
+    public double value;
+
+    private final StringBuilder sb = new StringBuilder(32);
+    private final DoubleFormatter rounded = new DoubleFormatter(10, DoubleFormatter.Notation.AUTO);
+
+    @Benchmark
+    public StringBuilder appendTo() {
+        sb.setLength(0);
+        return DoubleFormatter.SHORTEST.appendTo(sb, value);
+    }
+
+    @Benchmark
+    public StringBuilder appendToRounded() {
+        sb.setLength(0);
+        return rounded.appendTo(sb, value);
+    }
+
+    @Benchmark
+    public String format() {
+        return DoubleFormatter.SHORTEST.format(value);
+    }
+
+    @Benchmark
+    public String legacy() {
+        double n = value;
+        if (n == (long) n)
+            return String.valueOf((long) n);
+        return ("" + n).replaceAll("0+$", "").replaceAll("\\.$", "");
+    }
+
+    @Benchmark
+    public String jdkToString() {
+        return Double.toString(value);
+    }
+}
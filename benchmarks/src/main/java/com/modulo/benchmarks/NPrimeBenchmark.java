@@ -0,0 +1,91 @@
+package com.modulo.benchmarks;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import com.modulo.Registry.FunctionRegistry;
+import com.modulo.engine.CompiledExpression;
+import com.modulo.engine.Parser;
+import com.modulo.math.PrimeSieve;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code NPrime(n)} at several sizes.
+ * <p>
+ * {@code sieve} builds a new {@link PrimeSieve} for every call, which is
+ * what the first call for a large {@code n} costs. {@code shared} asks the
+ * shared sieve once its table covers {@code n}, and {@code function} calls
+ * {@code NPrime} from an expression, through the registry and its result
+ * cache, as the calculator does.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class NPrimeBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int n;
+
+    private CompiledExpression function;
+    private final double[] vars = new double[1];
+
+    @Setup
+    public void setUp() {
+        FunctionRegistry.loadFunctions();
+        // A variable argument, so the call is not folded into a constant
+        function = new Parser(FunctionRegistry.snapshot()).parse("NPrime(n)", "n").compile();
+        vars[0] = n;
+        PrimeSieve.shared().nthPrime(n);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long sieve() {
+        return new PrimeSieve().nthPrime(n);
+    }
+
+    @Benchmark
+    public long shared() {
+        return PrimeSieve.shared().nthPrime(n);
+    }
+
+    @Benchmark
+    public double function() {
+        return function.evaluate(vars);
+    }
+}
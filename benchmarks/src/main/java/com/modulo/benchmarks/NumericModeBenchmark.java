@@ -0,0 +1,106 @@
+package com.modulo.benchmarks;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import com.modulo.Registry.FunctionRegistry;
+import com.modulo.engine.Expression;
+import com.modulo.engine.NumericMode;
+import com.modulo.engine.Parser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of each {@link NumericMode} on the same expressions.
+ * <p>
+ * {@code exact} stays exact in {@code double}, so the hybrid mode never
+ * escalates; {@code decimal} has decimal literals and always escalates;
+ * {@code division} escalates when a quotient lands too close to the midpoint
+ * of two doubles; {@code sqrt} calls a function with a decimal
+ * implementation. The decimal mode is measured at the default precision of
+ * 34 digits. Each mode has its own benchmark returning its own result type,
+ * so that the {@code double} modes are not charged for boxing.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class NumericModeBenchmark {
+
+    @Param({"exact", "decimal", "division", "sqrt"})
+    public String shape;
+
+    private final MathContext context = MathContext.DECIMAL128;
+    private Expression expression;
+    private final BigDecimal[] decimalVars = new BigDecimal[1];
+
+    // Not final, so the JIT cannot treat it as a constant
+    private double x = 0.75;
+
+    @Setup
+    public void setUp() {
+        FunctionRegistry.loadFunctions();
+        expression = new Parser(FunctionRegistry.snapshot()).parse(source(shape), "x");
+        decimalVars[0] = new BigDecimal(x);
+    }
+
+    static String source(String shape) {
+        return switch (shape) {
+            case "exact" -> "x*2+1";
+            case "decimal" -> "x*0.1+0.2";
+            case "division" -> "x/3+x/7";
+            case "sqrt" -> "sqrt(x)*sqrt(x)";
+            default -> throw new IllegalArgumentException("Unknown shape: " + shape);
+        };
+    }
+
+    @Benchmark
+    public double doubleMode() {
+        return expression.evaluate(x);
+    }
+
+    @Benchmark
+    public BigDecimal decimalMode() {
+        return expression.evaluateDecimal(context, decimalVars);
+    }
+
+    @Benchmark
+    public double hybridMode() {
+        return expression.evaluateHybrid(context, x);
+    }
+}
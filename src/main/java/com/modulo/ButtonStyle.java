@@ -0,0 +1,147 @@
+package com.modulo;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import com.modulo.internal.Config;
+
+import javax.swing.*;
+import javax.swing.border.Border;
+import javax.swing.border.EmptyBorder;
+import javax.swing.border.LineBorder;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseListener;
+
+/**
+ * The look of the calculator's buttons, taken from a {@link Config} snapshot.
+ * <p>
+ * Colors, fonts, borders and the hover listener are immutable or stateless,
+ * so every button shares the same instances instead of building its own.
+ * When the settings change, {@link #apply(JButton)} moves existing buttons
+ * over to a new style.
+ * </p>
+ */
+final class ButtonStyle {
+
+    private static final Font KEY_FONT = new Font("Inter", Font.BOLD, 20);
+    private static final Font PAGER_FONT = new Font("Inter", Font.BOLD, 18);
+    private static final Border KEY_BORDER = BorderFactory.createCompoundBorder(
+            new LineBorder(new Color(220, 220, 220), 1, true),
+            new EmptyBorder(6, 6, 6, 6));
+    private static final Insets MARGIN = new Insets(10, 10, 10, 10);
+
+    private final Color text;
+    private final Color background;
+    private final Color hover;
+    private final Hover hoverListener = new Hover();
+
+    private ButtonStyle(Color text, Color background, Color hover) {
+        this.text = text;
+        this.background = background;
+        this.hover = hover;
+    }
+
+    /**
+     * Gets the button colors under {@code ui.colors}.
+     *
+     * @param config The settings.
+     * @return The style.
+     */
+    static ButtonStyle of(Config config) {
+        return new ButtonStyle(new Color(config.getButtonText()), new Color(config.getButtonBackground()),
+                new Color(config.getButtonHover()));
+    }
+
+    /**
+     * Creates a keypad button.
+     *
+     * @param label The button text, also its action command.
+     * @return The button.
+     */
+    JButton key(String label) {
+        JButton btn = button(label, KEY_FONT);
+        btn.setBorder(KEY_BORDER);
+        return btn;
+    }
+
+    /**
+     * Creates a button of the pager above the keypad.
+     *
+     * @param label The button text.
+     * @return The button.
+     */
+    JButton pager(String label) {
+        return button(label, PAGER_FONT);
+    }
+
+    private JButton button(String label, Font font) {
+        JButton btn = new JButton(label);
+        btn.setFont(font);
+        btn.setFocusPainted(false);
+        btn.setOpaque(true);
+        btn.setMargin(MARGIN);
+        apply(btn);
+        return btn;
+    }
+
+    /**
+     * Gives a button the colors and hover effect of this style, replacing
+     * those of any previous style.
+     *
+     * @param btn The button.
+     */
+    void apply(JButton btn) {
+        btn.setForeground(text);
+        btn.setBackground(background);
+        for (MouseListener listener : btn.getMouseListeners()) {
+            if (listener instanceof Hover) {
+                btn.removeMouseListener(listener);
+            }
+        }
+        btn.addMouseListener(hoverListener);
+    }
+
+    /**
+     * Clears the hover color of a button that was taken off the screen while
+     * under the mouse, which does not always report the mouse leaving.
+     *
+     * @param btn The button.
+     */
+    void reset(JButton btn) {
+        btn.setBackground(background);
+    }
+
+    // Works out the button from the event, so one instance serves all of them
+    private final class Hover extends MouseAdapter {
+        @Override
+        public void mouseEntered(MouseEvent evt) {
+            evt.getComponent().setBackground(hover);
+        }
+
+        @Override
+        public void mouseExited(MouseEvent evt) {
+            evt.getComponent().setBackground(background);
+        }
+    }
+}
@@ -23,18 +23,34 @@ package com.modulo;
  * SOFTWARE.
  */
 import com.modulo.Registry.FunctionRegistry;
+import com.modulo.cli.BatchCalculator;
+import com.modulo.engine.CalculatorEngine;
+import com.modulo.engine.FunctionSet;
+import com.modulo.engine.NumericMode;
+import com.modulo.format.DoubleFormatter;
 import com.modulo.internal.CalcFunction;
+import com.modulo.internal.Config;
 import com.modulo.internal.ConfigLoader;
+import com.modulo.server.CalculatorServer;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.border.LineBorder;
 import java.awt.*;
+import java.awt.event.ActionListener;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
+import java.math.MathContext;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * The main entry point for the Live Calculator application.
@@ -44,6 +60,10 @@ import java.util.List;
  * It handles user input, button interactions, and displays the calculation
  * results in real-time.
  * </p>
+ * <p>
+ * Parsing and evaluation are delegated to a {@link CalculatorEngine}, which
+ * can also be used on its own without a display.
+ * </p>
  */
 public class LiveCalculator extends JFrame {
 
@@ -53,9 +73,12 @@ public class LiveCalculator extends JFrame {
     private final JPanel buttonPanel;
     private final JButton prevPageBtn;
     private final JButton nextPageBtn;
+    private final JButton reloadBtn;
 
     private int currentPage = 0;
 
+    private static final int BUTTONS_PER_PAGE = 20;
+
     private final List<String> baseButtons = Arrays.asList(
             "7", "8", "9", "/",
             "4", "5", "6", "*",
@@ -63,27 +86,66 @@ public class LiveCalculator extends JFrame {
             "0", ".", "(", ")",
             "C", "=", "+");
 
-    private final List<CalcFunction> functions = new ArrayList<>();
+    // Buttons are built once per function snapshot; paging only swaps them
+    // into the panel. Function buttons carry their function as a client property
+    private ButtonStyle style;
+    private final ActionListener baseKeyAction = e -> handleButton(e.getActionCommand());
+    private final ActionListener functionKeyAction = e -> appendFunction(
+            (CalcFunction) ((JComponent) e.getSource()).getClientProperty(CalcFunction.class));
+    private final List<JButton> baseKeys = new ArrayList<>();
+    private Map<String, JButton> functionKeys = Map.of();
+    private List<JButton> keys = List.of();
+
+    private volatile CalculatorEngine engine;
+    // The arithmetic of the engine; only touched on the EDT
+    private NumericMode numericMode;
+    private MathContext mathContext;
+    private String lastLiveInput;
+
+    // Taken from the settings, and replaced when application.yml changes
+    private DoubleFormatter resultFormat;
+    private String defaultResult;
+    private final List<JComponent> keypadPanels = new ArrayList<>();
+
+    // Evaluation runs off the EDT; everything below is only touched on the EDT
+    private final ExecutorService evaluator = Executors.newVirtualThreadPerTaskExecutor();
+    private final Timer debounceTimer;
+    private Future<?> pendingEvaluation;
+    private long evaluationGeneration;
+    // Set while a reload asked for with the reload button is running
+    private boolean reloadRequested;
+
+    // Set for --startup-report; only touched on the EDT
+    private final StartupReport startup;
 
     /**
      * Constructs a new {@code LiveCalculator} instance.
      * <p>
      * Initializes the UI components, sets up the layout, and loads the calculator
-     * functions.
+     * functions in the background.
      * </p>
      */
     public LiveCalculator() {
-        String title = ConfigLoader.getString("ui.window.title");
-        int width = ConfigLoader.getInt("ui.window.width");
-        int height = ConfigLoader.getInt("ui.window.height");
+        this(loadFunctionsAsync(), null);
+    }
+
+    private LiveCalculator(CompletableFuture<Void> functionsLoaded, StartupReport startup) {
+        this.startup = startup;
 
-        setTitle(title);
-        setSize(width, height);
+        Config config = ConfigLoader.current();
+        style = ButtonStyle.of(config);
+        resultFormat = createResultFormat(config);
+        defaultResult = config.getDefaultResult();
+        numericMode = config.getNumericMode();
+        mathContext = config.getMathContext();
+        engine = createEngine(FunctionSet.empty());
 
-        Color bg = Color.decode(ConfigLoader.getColorHex("ui.colors.background"));
-        Color keypadBG = Color.decode(ConfigLoader.getColorHex("ui.colors.keypad"));
+        setTitle(config.getWindowTitle());
+        setSize(config.getWindowWidth(), config.getWindowHeight());
 
-        getContentPane().setBackground(bg);
+        Color keypadBG = new Color(config.getKeypad());
+
+        getContentPane().setBackground(new Color(config.getBackground()));
 
         // --- TOP PANEL ---
         JPanel top = new JPanel(new BorderLayout(10, 10));
@@ -108,8 +170,10 @@ public class LiveCalculator extends JFrame {
         });
         inputField.addActionListener(e -> calculateFinal());
 
+        debounceTimer = new Timer(config.getDebounceMs(), e -> startLiveEvaluation());
+        debounceTimer.setRepeats(false);
+
         // Result label
-        String defaultResult = ConfigLoader.getString("ui.labels.defaultResult");
         resultLabel = new JLabel(defaultResult, SwingConstants.RIGHT);
 
         resultLabel.setFont(new Font("Inter", Font.BOLD, 26));
@@ -130,41 +194,35 @@ public class LiveCalculator extends JFrame {
         // --- BUTTON PANEL ---
         JPanel bottom = new JPanel(new BorderLayout());
         bottom.setBackground(keypadBG);
+        keypadPanels.add(bottom);
 
         buttonPanel = new JPanel(new GridLayout(5, 4, 14, 14));
         buttonPanel.setBorder(new EmptyBorder(5, 20, 20, 20));
 
         buttonPanel.setBackground(keypadBG);
+        keypadPanels.add(buttonPanel);
 
         // Pagination buttons
-        prevPageBtn = modernButton("◀", false);
-        nextPageBtn = modernButton("▶", false);
-        prevPageBtn.setFont(new Font("Inter", Font.BOLD, 18));
-        nextPageBtn.setFont(new Font("Inter", Font.BOLD, 18));
+        prevPageBtn = style.pager("◀");
+        nextPageBtn = style.pager("▶");
 
         prevPageBtn.addActionListener(e -> {
             currentPage--;
-            refreshButtons();
+            showPage();
         });
         nextPageBtn.addActionListener(e -> {
             currentPage++;
-            refreshButtons();
+            showPage();
         });
 
         JPanel pager = new JPanel(new BorderLayout());
         pager.setBorder(new EmptyBorder(5, 20, 5, 20));
         pager.setBackground(keypadBG);
+        keypadPanels.add(pager);
         pager.add(prevPageBtn, BorderLayout.WEST);
 
-        JButton reloadBtn = modernButton("⟳", false);
-        reloadBtn.setFont(new Font("Inter", Font.BOLD, 18));
-        reloadBtn.addActionListener(e -> {
-            FunctionRegistry.reload();
-            functions.clear();
-            functions.addAll(FunctionRegistry.getFunctions());
-            refreshButtons();
-            JOptionPane.showMessageDialog(this, "Plugins Reloaded!", "Hot Reload", JOptionPane.INFORMATION_MESSAGE);
-        });
+        reloadBtn = style.pager("⟳");
+        reloadBtn.addActionListener(e -> reloadPlugins());
 
         pager.add(reloadBtn, BorderLayout.CENTER);
         pager.add(nextPageBtn, BorderLayout.EAST);
@@ -174,71 +232,232 @@ public class LiveCalculator extends JFrame {
 
         add(bottom, BorderLayout.CENTER);
 
-        // Load functions
-        FunctionRegistry.loadFunctions();
-        functions.addAll(FunctionRegistry.getFunctions());
+        for (String b : baseButtons) {
+            JButton btn = style.key(b);
+            btn.addActionListener(baseKeyAction);
+            baseKeys.add(btn);
+        }
 
+        // The window shows the base buttons until the functions have loaded.
+        // Plugin directory changes are reported on the watcher thread
         refreshButtons();
+        FunctionRegistry.addReloadListener(() -> SwingUtilities.invokeLater(() -> {
+            onFunctionsReloaded();
+            confirmReload();
+        }));
+        ConfigLoader.addReloadListener(c -> SwingUtilities.invokeLater(() -> onConfigReloaded(c)));
+        ConfigLoader.watch();
+        functionsLoaded.whenComplete((ignored, error) -> SwingUtilities.invokeLater(() -> {
+            onFunctionsReloaded();
+            if (startup != null) {
+                if (error != null) {
+                    startup.functionsFailed();
+                } else {
+                    startup.functionsLoaded(engine.getFunctions().getFunctions().size());
+                }
+            }
+            if (error != null) {
+                reportLoadFailure(error instanceof CompletionException ? error.getCause() : error);
+            }
+        }));
 
         SwingUtilities.invokeLater(inputField::requestFocusInWindow);
+        if (startup != null) {
+            startup.windowBuilt();
+        }
         setVisible(true);
     }
 
-    private JButton modernButton(String label, boolean borders) {
-        JButton btn = new JButton(label);
-        btn.setFont(new Font("Inter", Font.BOLD, 20));
-        btn.setFocusPainted(false);
-        btn.setForeground(Color.decode(ConfigLoader.getColorHex("ui.colors.buttonText")));
-        btn.setBackground(Color.decode(ConfigLoader.getColorHex("ui.colors.buttonBackground")));
-
-        if (borders) {
-            btn.setBorder(new LineBorder(new Color(220, 220, 220), 1, true));
-            btn.setBorder(BorderFactory.createCompoundBorder(
-                    new LineBorder(new Color(220, 220, 220), 1, true),
-                    new EmptyBorder(6, 6, 6, 6)));
-        }
+    /**
+     * Starts loading the functions off the EDT, so reading the plugin indexes
+     * overlaps with building the window.
+     */
+    private static CompletableFuture<Void> loadFunctionsAsync() {
+        return CompletableFuture.runAsync(FunctionRegistry::loadFunctions,
+                task -> Thread.ofVirtual().name("function-loader").start(task));
+    }
 
-        btn.setOpaque(true);
-        btn.setMargin(new Insets(10, 10, 10, 10));
+    /**
+     * Reports functions that failed to load. The window keeps working with
+     * the base buttons, and a later reload may still succeed.
+     *
+     * @param error The cause of the failure.
+     */
+    private void reportLoadFailure(Throwable error) {
+        System.err.print("Failed to load functions: ");
+        error.printStackTrace();
+        JOptionPane.showMessageDialog(this,
+                "Failed to load functions: " + (error.getMessage() != null ? error.getMessage() : error),
+                "Functions", JOptionPane.ERROR_MESSAGE);
+    }
 
-        // Hover effect
-        btn.addMouseListener(new java.awt.event.MouseAdapter() {
-            public void mouseEntered(java.awt.event.MouseEvent evt) {
-                btn.setBackground(Color.decode(ConfigLoader.getColorHex("ui.colors.buttonHover")));
-            }
+    @Override
+    public void paint(Graphics g) {
+        super.paint(g);
+        if (startup != null) {
+            startup.firstPaint();
+        }
+    }
+
+    /**
+     * Picks up the current function set from the {@link FunctionRegistry}.
+     * <p>
+     * The engine, and with it the expression cache, is bound to a snapshot of
+     * the functions, so a new engine replaces the old one. Evaluations already
+     * running finish on the engine they started with. A reload that changed
+     * nothing publishes no new snapshot and keeps the warm cache.
+     * </p>
+     */
+    private void onFunctionsReloaded() {
+        FunctionSet functions = FunctionRegistry.snapshot();
+        if (engine.getFunctions() == functions) {
+            return;
+        }
+        engine = createEngine(functions);
+        lastLiveInput = null;
+        refreshButtons();
+    }
 
-            public void mouseExited(java.awt.event.MouseEvent evt) {
-                btn.setBackground(new Color(248, 248, 248));
+    /**
+     * Reloads the plugins in the background. Opening and indexing the jars
+     * takes a while, so the button stays disabled until the reload listener
+     * reports back.
+     */
+    private void reloadPlugins() {
+        reloadBtn.setEnabled(false);
+        reloadRequested = true;
+        evaluator.execute(() -> {
+            try {
+                FunctionRegistry.reload();
+            } catch (RuntimeException e) {
+                SwingUtilities.invokeLater(() -> {
+                    reloadRequested = false;
+                    reloadBtn.setEnabled(true);
+                    JOptionPane.showMessageDialog(this, "Reload failed: " + e.getMessage(), "Hot Reload",
+                            JOptionPane.ERROR_MESSAGE);
+                });
             }
         });
+    }
 
-        return btn;
+    /**
+     * Confirms a reload started with the reload button. Reloads by the plugin
+     * directory watcher are not announced.
+     */
+    private void confirmReload() {
+        if (!reloadRequested) {
+            return;
+        }
+        reloadRequested = false;
+        reloadBtn.setEnabled(true);
+        JOptionPane.showMessageDialog(this, "Plugins Reloaded!", "Hot Reload", JOptionPane.INFORMATION_MESSAGE);
     }
 
     /**
-     * Refreshes the buttons displayed in the button panel based on the current
-     * page.
+     * Creates an engine for a function set in the configured numeric mode.
+     *
+     * @param functions The functions.
+     * @return The engine.
+     */
+    private CalculatorEngine createEngine(FunctionSet functions) {
+        return new CalculatorEngine(functions, CalculatorEngine.DEFAULT_CACHE_SIZE, numericMode, mathContext);
+    }
+
+    /**
+     * Re-themes the window with new settings.
      * <p>
-     * This method calculates which buttons to show and updates the UI accordingly.
+     * Colors, the title, the debounce delay, the result format and the
+     * numeric mode take effect at once; the window keeps its size. The pooled
+     * buttons are restyled in place, and the live result is recalculated.
+     * </p>
+     *
+     * @param config The new settings.
+     */
+    private void onConfigReloaded(Config config) {
+        setTitle(config.getWindowTitle());
+        getContentPane().setBackground(new Color(config.getBackground()));
+        for (JComponent panel : keypadPanels) {
+            panel.setBackground(new Color(config.getKeypad()));
+        }
+
+        style = ButtonStyle.of(config);
+        for (JButton btn : baseKeys) {
+            style.apply(btn);
+        }
+        for (JButton btn : functionKeys.values()) {
+            style.apply(btn);
+        }
+        style.apply(prevPageBtn);
+        style.apply(nextPageBtn);
+        style.apply(reloadBtn);
+
+        debounceTimer.setInitialDelay(config.getDebounceMs());
+        debounceTimer.setDelay(config.getDebounceMs());
+        resultFormat = createResultFormat(config);
+        if (resultLabel.getText().equals(defaultResult)) {
+            resultLabel.setText(config.getDefaultResult());
+        }
+        defaultResult = config.getDefaultResult();
+        if (config.getNumericMode() != numericMode || !config.getMathContext().equals(mathContext)) {
+            numericMode = config.getNumericMode();
+            mathContext = config.getMathContext();
+            engine = createEngine(engine.getFunctions());
+        }
+        lastLiveInput = null;
+        calculateLive();
+
+        repaint();
+    }
+
+    /**
+     * Rebuilds the list of buttons for the current function snapshot and shows
+     * the current page.
+     * <p>
+     * The buttons of functions that are still registered under the same name
+     * are kept and pointed at the new function instance, so a reload only
+     * creates buttons for new functions.
      * </p>
      */
     private void refreshButtons() {
+        Map<String, JButton> previous = functionKeys;
+        Map<String, JButton> current = new HashMap<>();
+        List<JButton> all = new ArrayList<>(baseKeys);
 
-        List<JButton> allButtons = getJButtons();
+        // Modular scientific buttons
+        for (CalcFunction f : engine.getFunctions().getFunctions()) {
+            JButton btn = previous.get(f.getName());
+            if (btn == null) {
+                btn = style.key(f.getName());
+                btn.addActionListener(functionKeyAction);
+            }
+            btn.putClientProperty(CalcFunction.class, f);
+            current.put(f.getName(), btn);
+            all.add(btn);
+        }
+        functionKeys = current;
+        keys = all;
+        showPage();
+    }
 
-        int BUTTONS_PER_PAGE = 20;
-        int totalPages = (int) Math.ceil(allButtons.size() / (double) BUTTONS_PER_PAGE);
-        if (currentPage < 0)
-            currentPage = 0;
+    /**
+     * Shows the buttons of the current page, clamping it to the pages there
+     * are.
+     */
+    private void showPage() {
+        int totalPages = (keys.size() + BUTTONS_PER_PAGE - 1) / BUTTONS_PER_PAGE;
         if (currentPage >= totalPages)
             currentPage = totalPages - 1;
+        if (currentPage < 0)
+            currentPage = 0;
 
         buttonPanel.removeAll();
         int start = currentPage * BUTTONS_PER_PAGE;
-        int end = Math.min(start + BUTTONS_PER_PAGE, allButtons.size());
+        int end = Math.min(start + BUTTONS_PER_PAGE, keys.size());
 
         for (int i = start; i < end; i++) {
-            buttonPanel.add(allButtons.get(i));
+            JButton btn = keys.get(i);
+            style.reset(btn);
+            buttonPanel.add(btn);
         }
 
         prevPageBtn.setEnabled(currentPage > 0);
@@ -248,33 +467,6 @@ public class LiveCalculator extends JFrame {
         buttonPanel.repaint();
     }
 
-    /**
-     * Generates a list of all available calculator buttons.
-     *
-     * @return A list of {@link JButton} objects representing base operations and
-     *         loaded functions.
-     */
-    private List<JButton> getJButtons() {
-        List<JButton> allButtons = new ArrayList<>();
-
-        // Base buttons first
-        for (String b : baseButtons) {
-            JButton btn = modernButton(b, true);
-
-            btn.addActionListener(e -> handleButton(b));
-            allButtons.add(btn);
-        }
-
-        // Modular scientific buttons
-        for (CalcFunction f : functions) {
-            JButton btn = modernButton(f.getName(), true);
-
-            btn.addActionListener(e -> appendFunction(f));
-            allButtons.add(btn);
-        }
-        return allButtons;
-    }
-
     /**
      * Appends a function's insert text to the input field and triggers a live
      * calculation.
@@ -295,7 +487,9 @@ public class LiveCalculator extends JFrame {
         switch (text) {
             case "C":
                 inputField.setText("");
-                resultLabel.setText("= 0");
+                cancelPendingEvaluation();
+                resultLabel.setText(defaultResult);
+                lastLiveInput = null;
                 break;
 
             case "=":
@@ -309,204 +503,164 @@ public class LiveCalculator extends JFrame {
     }
 
     /**
-     * Performs a live calculation based on the current text in the input field.
+     * Schedules a live calculation based on the current text in the input field.
      * <p>
-     * Updates the result label with the calculated value or an ellipsis if the
+     * Keystrokes are debounced: the expression is only evaluated once typing
+     * pauses, on a background thread, so slow functions never block the UI.
+     * The result label shows the calculated value or an ellipsis if the
      * expression is incomplete.
      * </p>
      */
     private void calculateLive() {
         String expr = inputField.getText().trim();
+        // Cursor and modifier keys fire keyReleased without changing the text
+        if (expr.equals(lastLiveInput)) {
+            return;
+        }
+        lastLiveInput = expr;
         if (expr.isEmpty()) {
-            resultLabel.setText("= 0");
+            cancelPendingEvaluation();
+            resultLabel.setText(defaultResult);
             return;
         }
-        try {
-            double val = evaluate(expr);
-            resultLabel.setText("= " + format(val));
-        } catch (Exception e) {
-            resultLabel.setText("= …");
+        debounceTimer.restart();
+    }
+
+    /**
+     * Starts evaluating the latest live input, superseding any evaluation
+     * still in flight.
+     */
+    private void startLiveEvaluation() {
+        String expr = lastLiveInput;
+        if (expr == null || expr.isEmpty()) {
+            return;
         }
+        CalculatorEngine current = engine;
+        DoubleFormatter format = resultFormat;
+        long generation = beginEvaluation();
+        pendingEvaluation = evaluator.submit(() -> {
+            String text;
+            try {
+                text = "= " + format.format(current.evaluate(expr));
+            } catch (Exception e) {
+                text = "= …";
+            }
+            String result = text;
+            publish(generation, () -> resultLabel.setText(result));
+        });
     }
 
     /**
      * Performs the final calculation and updates the input field with the result.
      * <p>
-     * This is typically triggered by the equals button or pressing Enter.
+     * This is typically triggered by the equals button or pressing Enter. Like
+     * live calculation, the work happens on a background thread.
      * </p>
      */
     private void calculateFinal() {
         String expr = inputField.getText().trim();
         if (expr.isEmpty())
             return;
-        try {
-            double result = evaluate(expr);
-            inputField.setText(format(result));
-            resultLabel.setText("= " + format(result));
-        } catch (Exception e) {
-            resultLabel.setText("Error");
-        }
+        CalculatorEngine current = engine;
+        DoubleFormatter format = resultFormat;
+        long generation = beginEvaluation();
+        pendingEvaluation = evaluator.submit(() -> {
+            try {
+                String result = format.format(current.evaluate(expr));
+                publish(generation, () -> {
+                    inputField.setText(result);
+                    resultLabel.setText("= " + result);
+                    lastLiveInput = result;
+                });
+            } catch (Exception e) {
+                publish(generation, () -> resultLabel.setText("Error"));
+            }
+        });
     }
 
     /**
-     * Evaluates a mathematical expression string.
+     * Cancels pending work and returns the generation for a new evaluation.
      *
-     * @param expr The expression to evaluate.
-     * @return The result of the evaluation.
+     * @return The generation the new evaluation must match to publish.
      */
-    private double evaluate(String expr) {
-        // Performance: Clean string once
-        return parseAddSubtract(expr.replaceAll("\\s+", ""));
+    private long beginEvaluation() {
+        cancelPendingEvaluation();
+        return evaluationGeneration;
     }
 
     /**
-     * Parses and evaluates addition and subtraction operations.
-     *
-     * @param expr The expression to parse.
-     * @return The result of the addition/subtraction.
+     * Stops the debounce timer and cancels any evaluation in flight. Results
+     * of cancelled evaluations are never shown, even if the plugin ignores the
+     * interrupt and runs to completion.
      */
-    private double parseAddSubtract(String expr) {
-        int depth = 0;
-        for (int i = expr.length() - 1; i >= 0; i--) {
-            char c = expr.charAt(i);
-            if (c == ')')
-                depth++;
-            if (c == '(')
-                depth--;
-            if (depth == 0 && i > 0 && (c == '+' || c == '-')) {
-                // Handle scientific notation (e.g., 1.2E-3)
-                if (c == '-' && ((expr.charAt(i - 1) == 'E' || expr.charAt(i - 1) == 'e'))) {
-                    continue;
-                }
-
-                return c == '+'
-                        ? parseAddSubtract(expr.substring(0, i)) + parseMultiply(expr.substring(i + 1))
-                        : parseAddSubtract(expr.substring(0, i)) - parseMultiply(expr.substring(i + 1));
-            }
+    private void cancelPendingEvaluation() {
+        debounceTimer.stop();
+        evaluationGeneration++;
+        if (pendingEvaluation != null) {
+            pendingEvaluation.cancel(true);
+            pendingEvaluation = null;
         }
-        return parseMultiply(expr);
     }
 
     /**
-     * Parses and evaluates multiplication and division operations.
+     * Applies a result on the EDT if no newer evaluation has started since.
      *
-     * @param expr The expression to parse.
-     * @return The result of the multiplication/division.
+     * @param generation The generation the result belongs to.
+     * @param update     The UI update to apply.
      */
-    private double parseMultiply(String expr) {
-        int depth = 0;
-        for (int i = expr.length() - 1; i >= 0; i--) {
-            char c = expr.charAt(i);
-            if (c == ')')
-                depth++;
-            if (c == '(')
-                depth--;
-            if (depth == 0 && i > 0 && (c == '*' || c == '/')) {
-                return c == '*'
-                        ? parseMultiply(expr.substring(0, i)) * parseUnary(expr.substring(i + 1))
-                        : parseMultiply(expr.substring(0, i)) / parseUnary(expr.substring(i + 1));
+    private void publish(long generation, Runnable update) {
+        SwingUtilities.invokeLater(() -> {
+            if (generation == evaluationGeneration) {
+                pendingEvaluation = null;
+                update.run();
             }
-        }
-        return parseUnary(expr);
+        });
     }
 
     /**
-     * Parses and evaluates unary operations (positive/negative signs).
+     * Creates the result formatter from {@code ui.result.precision} and
+     * {@code ui.result.notation}.
      *
-     * @param expr The expression to parse.
-     * @return The result of the unary operation.
+     * @param config The settings.
+     * @return The formatter.
      */
-    private double parseUnary(String expr) {
-        if (expr.startsWith("+"))
-            return parseUnary(expr.substring(1));
-        if (expr.startsWith("-"))
-            return -parseUnary(expr.substring(1));
-        return parseFunction(expr);
+    private static DoubleFormatter createResultFormat(Config config) {
+        return new DoubleFormatter(config.getResultPrecision(), config.getResultNotation());
     }
 
     /**
-     * Parses and evaluates custom functions.
+     * The main method to launch the application.
      *
-     * @param expr The expression to parse.
-     * @return The result of the function evaluation.
+     * @param args Command line arguments; {@code --batch} or {@code --server}
+     *             followed by the options of {@link BatchCalculator#main(String[])}
+     *             or {@link CalculatorServer#main(String[])} runs headless
+     *             instead of opening the window. {@code --startup-report}
+     *             prints how long the window took to appear, and
+     *             {@code --exit-after-startup} also exits right after, e.g.
+     *             to train a class data sharing archive.
      */
-    private double parseFunction(String expr) {
-        for (CalcFunction f : functions) {
-            String name = f.getName();
-            String fnPattern = name + "(";
-
-            if (expr.startsWith(fnPattern) && expr.endsWith(")")) {
-                String inside = expr.substring(fnPattern.length(), expr.length() - 1);
-
-                // Split arguments by comma, respecting parentheses
-                List<String> argsStr = splitArgs(inside);
-                double[] args = new double[argsStr.size()];
-
-                for (int i = 0; i < argsStr.size(); i++) {
-                    args[i] = parseAddSubtract(argsStr.get(i)); // Recursive call to top-level parser logic (minus
-                                                                // whitespace cleaning)
-                }
-
-                return f.execute(args);
-            }
-        }
-        return parsePrimary(expr);
-    }
-
-    private List<String> splitArgs(String inside) {
-        List<String> args = new ArrayList<>();
-        int depth = 0;
-        int start = 0;
-        for (int i = 0; i < inside.length(); i++) {
-            char c = inside.charAt(i);
-            if (c == '(')
-                depth++;
-            if (c == ')')
-                depth--;
-            if (c == ',' && depth == 0) {
-                args.add(inside.substring(start, i));
-                start = i + 1;
-            }
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            BatchCalculator.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
         }
-        args.add(inside.substring(start));
-        return args;
-    }
-
-    /**
-     * Parses and evaluates primary expressions (numbers and parentheses).
-     *
-     * @param expr The expression to parse.
-     * @return The result of the primary expression.
-     */
-    private double parsePrimary(String expr) {
-        if (expr.startsWith("(") && expr.endsWith(")")) {
-            return parseAddSubtract(expr.substring(1, expr.length() - 1));
+        if (args.length > 0 && args[0].equals("--server")) {
+            CalculatorServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
         }
-        try {
-            return Double.parseDouble(expr);
-        } catch (NumberFormatException e) {
-            throw new RuntimeException("Invalid number: " + expr);
+        boolean report = false;
+        boolean exit = false;
+        for (String arg : args) {
+            switch (arg) {
+                case "--startup-report" -> report = true;
+                case "--exit-after-startup" -> exit = true;
+                default -> System.err.println("Ignoring unknown option: " + arg);
+            }
         }
-    }
-
-    /**
-     * Formats a double value into a string, removing unnecessary decimal places.
-     *
-     * @param n The number to format.
-     * @return The formatted string.
-     */
-    private String format(double n) {
-        if (n == (long) n)
-            return String.valueOf((long) n);
-        return ("" + n).replaceAll("0+$", "").replaceAll("\\.$", "");
-    }
-
-    /**
-     * The main method to launch the application.
-     *
-     * @param args Command line arguments (not used).
-     */
-    public static void main(String[] args) {
-        SwingUtilities.invokeLater(LiveCalculator::new);
+        StartupReport startup = report || exit
+                ? new StartupReport(exit ? () -> SwingUtilities.invokeLater(() -> System.exit(0)) : () -> { })
+                : null;
+        CompletableFuture<Void> functionsLoaded = loadFunctionsAsync();
+        SwingUtilities.invokeLater(() -> new LiveCalculator(functionsLoaded, startup));
     }
 }
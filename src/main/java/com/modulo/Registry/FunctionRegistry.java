@@ -22,14 +22,27 @@ package com.modulo.Registry;
  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
  * SOFTWARE.
  */
-import com.modulo.internal.AnnotatedFunctionAdapter;
+import com.modulo.engine.CalculatorEngine;
+import com.modulo.engine.FunctionSet;
 import com.modulo.internal.CalcFunction;
+import com.modulo.internal.ConfigLoader;
+import com.modulo.internal.DirectoryWatcher;
 import com.modulo.internal.Function;
-import org.reflections.Reflections;
 
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Registry for managing and loading calculator functions.
@@ -38,42 +51,92 @@ import java.util.Set;
  * {@link CalcFunction} implementations
  * and methods annotated with {@link Function}.
  * </p>
+ * <p>
+ * Functions come from the application class path and from the jars in the
+ * plugin directory ({@code plugins.directory}, default {@code plugins}). Each
+ * jar gets its own class loader, and a watcher reloads a jar when it is added,
+ * replaced or removed. Reloads are incremental: unchanged jars keep their
+ * function instances, and with them any state those functions have built up.
+ * </p>
+ * <p>
+ * Readers never lock. Every load or reload builds a new immutable, versioned
+ * {@link FunctionSet} off to the side and publishes it with a single volatile
+ * write, so a reader that took a {@link #snapshot()} keeps a consistent view
+ * for as long as it holds on to it. Writers are serialized among themselves.
+ * </p>
  */
 public class FunctionRegistry {
 
-    private static final List<CalcFunction> functions = new ArrayList<>();
+    private static final Object lock = new Object();
+    private static volatile FunctionSet current = FunctionSet.empty();
+    private static final List<Runnable> reloadListeners = new CopyOnWriteArrayList<>();
+    private static final Map<Path, PluginJar> jars = new TreeMap<>();
+    // Unloaded jars, retired once a snapshot without them is published
+    private static final List<PluginJar> retired = new ArrayList<>();
+    // Releases the jars of snapshots that are no longer reachable
+    private static final Cleaner cleaner = Cleaner.create();
+    private static List<CalcFunction> classpathFunctions;
+    private static boolean watching;
 
     /**
      * Retrieves the list of registered calculator functions.
      *
-     * @return A list of {@link CalcFunction} instances.
+     * @return An unmodifiable list of the {@link CalcFunction} instances in
+     *         the current snapshot.
      */
     public static List<CalcFunction> getFunctions() {
-        return functions;
+        return current.getFunctions();
     }
 
     /**
-     * Scans the {@code com.modulo.functions} package and loads all available
-     * functions.
+     * Gets the current immutable snapshot of the registered functions.
      * <p>
-     * It supports two types of function definitions:
-     * <ul>
-     * <li>Classes implementing {@link CalcFunction}</li>
-     * <li>Classes annotated with {@link Function}</li>
-     * </ul>
+     * The snapshot is unaffected by later reloads, which makes it suitable for
+     * building a {@link CalculatorEngine} that is shared between threads. This
+     * method does not copy or lock; its version increases with every reload
+     * that changes the functions.
      * </p>
+     *
+     * @return The current functions as a {@link FunctionSet}.
      */
+    public static FunctionSet snapshot() {
+        return current;
+    }
+
     /**
-     * Reloads all functions by clearing the current registry and rescanning.
+     * Reloads the plugin directory and notifies the reload listeners.
+     * <p>
+     * Only jars that were added, changed or removed since the last load are
+     * reloaded; everything else is kept as is.
+     * </p>
      */
     public static void reload() {
-        functions.clear();
-        loadFunctions();
+        synchronized (lock) {
+            if (classpathFunctions == null) {
+                loadFunctions();
+            } else if (syncPlugins()) {
+                rebuild();
+            }
+        }
+        fireReloaded();
     }
 
     /**
-     * Scans the {@code com.modulo.functions} package and loads all available
-     * functions.
+     * Registers a callback that runs after every reload.
+     * <p>
+     * Anything derived from the previous function set, such as compiled
+     * expressions, should be discarded here. Reloads triggered by the plugin
+     * directory watcher call the listener on the watcher thread.
+     * </p>
+     *
+     * @param listener The callback to run.
+     */
+    public static void addReloadListener(Runnable listener) {
+        reloadListeners.add(listener);
+    }
+
+    /**
+     * Loads all available functions and starts watching the plugin directory.
      * <p>
      * It supports two types of function definitions:
      * <ul>
@@ -81,54 +144,139 @@ public class FunctionRegistry {
      * <li>Classes annotated with {@link Function}</li>
      * </ul>
      * </p>
+     *
+     * @see PluginLoader
      */
     public static void loadFunctions() {
-        // Ensure we don't duplicate if called directly without reload()
-        // But reload() clears it. Let's make loadFunctions safe too or just rely on
-        // reload.
-        // If we clear here, we might break if loadFunctions is called multiple times
-        // for additive loading?
-        // The javadoc says "Scans... and loads". Usually implies fresh state or
-        // additive.
-        // Let's keep loadFunctions additive (or idempotent if we checked dupes) but
-        // reload() clears.
-        // Actually, I'll just rely on reload() clearing it.
-        // Wait, if I use reload() I need to make sure loadFunctions doesn't clear if I
-        // want it to be additive.
-        // But for "Hot Reload" we want a fresh state.
-        // So reload() { functions.clear(); loadFunctions(); } is correct.
+        synchronized (lock) {
+            classpathFunctions = PluginLoader.loadClasspath(FunctionRegistry.class.getClassLoader());
+            syncPlugins();
+            rebuild();
+            startWatching();
+        }
+    }
 
-        try {
-            Reflections reflections = new Reflections("com.modulo.functions");
-
-            // Load old-style CalcFunction modules
-            Set<Class<? extends CalcFunction>> classes = reflections.getSubTypesOf(CalcFunction.class);
-            for (Class<? extends CalcFunction> cls : classes) {
-                if (!cls.isInterface() && !java.lang.reflect.Modifier.isAbstract(cls.getModifiers())) {
-                    CalcFunction f = cls.getDeclaredConstructor().newInstance();
-                    registerFunction(f);
+    /**
+     * Brings the plugin directory up to date, called by the
+     * {@link DirectoryWatcher} on the plugin directory.
+     */
+    static void refreshPlugins() {
+        boolean changed;
+        synchronized (lock) {
+            changed = classpathFunctions != null && syncPlugins();
+            if (changed) {
+                rebuild();
+            }
+        }
+        if (changed) {
+            fireReloaded();
+        }
+    }
+
+    /**
+     * Checks whether a file in the plugin directory is a plugin jar.
+     *
+     * @param file The file name.
+     * @return {@code true} for jar files.
+     */
+    static boolean isPluginJar(Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".jar");
+    }
+
+    private static Path pluginDirectory() {
+        String dir = ConfigLoader.current().getPluginsDirectory();
+        return Path.of(dir.isBlank() ? "plugins" : dir).toAbsolutePath().normalize();
+    }
+
+    /**
+     * Loads new and changed jars and unloads removed ones. The caller
+     * publishes the change with {@link #rebuild()}.
+     *
+     * @return {@code true} if any jar was loaded or unloaded.
+     */
+    private static boolean syncPlugins() {
+        Path dir = pluginDirectory();
+        Set<Path> present = new HashSet<>();
+        if (Files.isDirectory(dir)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, p -> isPluginJar(p) && Files.isRegularFile(p))) {
+                for (Path p : stream) {
+                    present.add(p.toAbsolutePath().normalize());
                 }
+            } catch (IOException e) {
+                System.err.println("Failed listing plugins in " + dir + ": " + e.getMessage());
+                return false;
             }
+        }
 
-            // Load annotation-based modules
-            Set<Class<?>> annotated = reflections.getTypesAnnotatedWith(Function.class);
-            for (Class<?> cls : annotated) {
-                Object obj = cls.getDeclaredConstructor().newInstance();
-                Function meta = cls.getAnnotation(Function.class);
-                registerFunction(new AnnotatedFunctionAdapter(obj, meta));
+        boolean changed = false;
+        for (Iterator<PluginJar> it = jars.values().iterator(); it.hasNext(); ) {
+            PluginJar jar = it.next();
+            if (!present.contains(jar.path()) || jar.isStale()) {
+                it.remove();
+                retired.add(jar);
+                changed = true;
+            }
+        }
+        for (Path p : present) {
+            if (!jars.containsKey(p)) {
+                try {
+                    jars.put(p, PluginJar.open(p, FunctionRegistry.class.getClassLoader()));
+                    changed = true;
+                } catch (IOException | RuntimeException e) {
+                    // Possibly still being copied; the watcher will see it again when it is done
+                    System.err.println("Skipping plugin " + p.getFileName() + ": " + e.getMessage());
+                }
             }
-        } catch (Exception e) {
-            System.err.println("Failed loading plugins: " + e.getMessage());
         }
+        return changed;
     }
 
-    private static void registerFunction(CalcFunction f) {
-        for (CalcFunction existing : functions) {
-            if (existing.getName().equals(f.getName())) {
+    /**
+     * Builds and publishes a new snapshot: class path functions first, then
+     * plugin jars in file name order. Jars unloaded since the last snapshot
+     * are retired, and closed when no snapshot holding them is reachable.
+     */
+    private static void rebuild() {
+        List<CalcFunction> all = new ArrayList<>(classpathFunctions);
+        for (PluginJar jar : jars.values()) {
+            all.addAll(jar.functions());
+        }
+        Set<String> names = new HashSet<>();
+        for (CalcFunction f : all) {
+            if (!names.add(f.getName())) {
                 System.err.println("Warning: Duplicate function name '" + f.getName() + "'. Skipping.");
-                return;
             }
         }
-        functions.add(f);
+        List<PluginJar> included = List.copyOf(jars.values());
+        for (PluginJar jar : included) {
+            jar.acquire();
+        }
+        FunctionSet snapshot = FunctionSet.of(all, current.getVersion() + 1);
+        cleaner.register(snapshot, () -> included.forEach(PluginJar::release));
+        current = snapshot;
+        for (PluginJar jar : retired) {
+            jar.retire();
+        }
+        retired.clear();
+    }
+
+    private static void startWatching() {
+        Path dir = pluginDirectory();
+        if (watching || !ConfigLoader.current().isPluginsWatch() || !Files.isDirectory(dir)) {
+            return;
+        }
+        try {
+            DirectoryWatcher.start("plugin-watcher", dir, FunctionRegistry::isPluginJar,
+                    FunctionRegistry::refreshPlugins);
+            watching = true;
+        } catch (IOException e) {
+            System.err.println("Cannot watch plugin directory " + dir + ": " + e.getMessage());
+        }
+    }
+
+    private static void fireReloaded() {
+        for (Runnable listener : reloadListeners) {
+            listener.run();
+        }
     }
 }
@@ -0,0 +1,154 @@
+package com.modulo.Registry;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import com.modulo.internal.CalcFunction;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+
+/**
+ * A plugin jar loaded in its own class loader.
+ * <p>
+ * Giving every jar a separate loader means a jar can be replaced or removed
+ * without touching the classes, instances and caches of the others.
+ * </p>
+ * <p>
+ * The loader stays open while any published snapshot holding the jar's
+ * functions is reachable, because functions registered lazily, and any class
+ * a function has not used yet, are loaded through it on first use.
+ * </p>
+ */
+final class PluginJar {
+
+    private final Path path;
+    private final Stamp stamp;
+    private final URLClassLoader loader;
+    private final List<CalcFunction> functions;
+
+    // Guarded by this
+    private int snapshots;
+    private boolean retired;
+    private boolean closed;
+
+    private PluginJar(Path path, Stamp stamp, URLClassLoader loader, List<CalcFunction> functions) {
+        this.path = path;
+        this.stamp = stamp;
+        this.loader = loader;
+        this.functions = functions;
+    }
+
+    /**
+     * Loads the functions of a jar.
+     *
+     * @param path   The jar file.
+     * @param parent The loader that provides the Modulator API.
+     * @return The loaded jar.
+     * @throws IOException If the jar cannot be read.
+     */
+    static PluginJar open(Path path, ClassLoader parent) throws IOException {
+        Stamp stamp = Stamp.of(path);
+        URL url = path.toUri().toURL();
+        URLClassLoader loader = new URLClassLoader("plugin:" + path.getFileName(), new URL[]{url}, parent);
+        try {
+            return new PluginJar(path, stamp, loader, List.copyOf(PluginLoader.loadJar(loader, url)));
+        } catch (IOException | RuntimeException e) {
+            loader.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Checks whether the file on disk still matches what was loaded.
+     *
+     * @return {@code true} if the jar was modified since it was loaded.
+     */
+    boolean isStale() {
+        try {
+            return !stamp.equals(Stamp.of(path));
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    Path path() {
+        return path;
+    }
+
+    List<CalcFunction> functions() {
+        return functions;
+    }
+
+    /**
+     * Records that a published snapshot holds the jar's functions.
+     */
+    synchronized void acquire() {
+        snapshots++;
+    }
+
+    /**
+     * Records that a snapshot holding the jar's functions is no longer
+     * reachable, closing the jar if it was retired and that was the last.
+     */
+    synchronized void release() {
+        snapshots--;
+        closeIfUnused();
+    }
+
+    /**
+     * Marks the jar as unloaded. The jar file is released once no snapshot
+     * holding its functions is reachable, so evaluations on older snapshots
+     * can still load classes from it.
+     */
+    synchronized void retire() {
+        retired = true;
+        closeIfUnused();
+    }
+
+    private void closeIfUnused() {
+        if (!retired || snapshots > 0 || closed) {
+            return;
+        }
+        closed = true;
+        try {
+            loader.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close plugin " + path + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Identifies a version of a file by its size and modification time.
+     */
+    private record Stamp(long size, long modified) {
+        static Stamp of(Path path) throws IOException {
+            BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            return new Stamp(attrs.size(), attrs.lastModifiedTime().toMillis());
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.modulo.Registry;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import com.modulo.internal.AnnotatedFunctionAdapter;
+import com.modulo.internal.CachePolicy;
+import com.modulo.internal.CalcFunction;
+import com.modulo.internal.Function;
+import com.modulo.internal.MemoizedFunction;
+import com.modulo.jfr.RecordedFunction;
+import com.modulo.metrics.MeteredFunction;
+import com.modulo.processor.FunctionIndex;
+import com.modulo.processor.FunctionIndexProcessor;
+import org.reflections.Reflections;
+import org.reflections.util.ConfigurationBuilder;
+import org.reflections.util.FilterBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * Discovers and instantiates the functions provided by a class loader.
+ * <p>
+ * Functions are read from the plugin indexes ({@value FunctionIndex#RESOURCE})
+ * that {@link FunctionIndexProcessor} generates at build time, which avoids
+ * scanning bytecode. Only code without an index is scanned with Reflections.
+ * A module that fails to load is reported and skipped without affecting the
+ * others. Pure functions are wrapped in a {@link MemoizedFunction} here, so
+ * their result cache lives and dies with the loaded instance.
+ * </p>
+ * <p>
+ * {@code @Function} classes whose index entry carries their metadata are not
+ * loaded at all until their first call, which keeps class loading and
+ * {@code run(...)} binding out of startup. Classes implementing
+ * {@link CalcFunction} declare their name in code and are instantiated here.
+ * </p>
+ */
+final class PluginLoader {
+
+    private static final String BUILTIN_PACKAGE = "com.modulo.functions";
+
+    private PluginLoader() {
+    }
+
+    /**
+     * Loads the functions on the application class path.
+     *
+     * @param loader The application class loader.
+     * @return The functions, in index order.
+     */
+    static List<CalcFunction> loadClasspath(ClassLoader loader) {
+        List<CalcFunction> out = new ArrayList<>();
+        try {
+            if (!loadIndexed(loader.getResources(FunctionIndex.RESOURCE), loader, out)) {
+                scan(new ConfigurationBuilder()
+                        .forPackage(BUILTIN_PACKAGE, loader)
+                        .filterInputsBy(new FilterBuilder().includePackage(BUILTIN_PACKAGE))
+                        .addClassLoaders(loader), out);
+            }
+        } catch (Exception e) {
+            System.err.println("Failed loading plugins: " + e.getMessage());
+        }
+        return out;
+    }
+
+    /**
+     * Loads the functions packaged in a single plugin jar.
+     * <p>
+     * Only the jar's own index is consulted, so classes the loader inherits from
+     * its parent are never registered twice.
+     * </p>
+     *
+     * @param loader The class loader dedicated to the jar.
+     * @param jar    The location of the jar.
+     * @return The functions, in index order.
+     * @throws IOException If the jar cannot be read.
+     */
+    static List<CalcFunction> loadJar(URLClassLoader loader, URL jar) throws IOException {
+        List<CalcFunction> out = new ArrayList<>();
+        if (!loadIndexed(loader.findResources(FunctionIndex.RESOURCE), loader, out)) {
+            scan(new ConfigurationBuilder()
+                    .addUrls(jar)
+                    .addClassLoaders(loader), out);
+        }
+        return out;
+    }
+
+    /**
+     * Loads the classes listed in the given plugin indexes.
+     *
+     * @return {@code false} if there was no index to load from.
+     */
+    private static boolean loadIndexed(Enumeration<URL> indexes, ClassLoader loader, List<CalcFunction> out) {
+        if (!indexes.hasMoreElements()) {
+            return false;
+        }
+        while (indexes.hasMoreElements()) {
+            URL url = indexes.nextElement();
+            List<FunctionIndex.Entry> entries;
+            try {
+                // Uncached, or the shared jar cache keeps the plugin open after its loader is closed
+                URLConnection connection = url.openConnection();
+                connection.setUseCaches(false);
+                try (InputStream in = connection.getInputStream()) {
+                    entries = FunctionIndex.read(in);
+                }
+            } catch (IOException e) {
+                System.err.println("Skipping plugin index " + url + ": " + e.getMessage());
+                continue;
+            }
+            for (FunctionIndex.Entry entry : entries) {
+                try {
+                    if (entry.kind() == FunctionIndex.Kind.ANNOTATED && entry.metadata() != null) {
+                        out.add(wrap(lazy(entry.className(), entry.metadata(), loader)));
+                        continue;
+                    }
+                    Class<?> cls = Class.forName(entry.className(), true, loader);
+                    load(entry.kind(), cls, out);
+                } catch (Exception | LinkageError e) {
+                    System.err.println("Skipping module " + entry.className() + ": " + e.getMessage());
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds functions by scanning bytecode, for plugins built without the
+     * index processor.
+     */
+    private static void scan(ConfigurationBuilder configuration, List<CalcFunction> out) {
+        Reflections reflections = new Reflections(configuration);
+
+        // Load old-style CalcFunction modules
+        for (Class<? extends CalcFunction> cls : reflections.getSubTypesOf(CalcFunction.class)) {
+            if (!cls.isInterface() && !Modifier.isAbstract(cls.getModifiers())) {
+                loadSafely(FunctionIndex.Kind.FUNCTION, cls, out);
+            }
+        }
+
+        // Load annotation-based modules
+        for (Class<?> cls : reflections.getTypesAnnotatedWith(Function.class)) {
+            loadSafely(FunctionIndex.Kind.ANNOTATED, cls, out);
+        }
+    }
+
+    private static void loadSafely(FunctionIndex.Kind kind, Class<?> cls, List<CalcFunction> out) {
+        try {
+            load(kind, cls, out);
+        } catch (Exception | LinkageError e) {
+            System.err.println("Skipping module " + cls.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private static void load(FunctionIndex.Kind kind, Class<?> cls, List<CalcFunction> out)
+            throws ReflectiveOperationException {
+        switch (kind) {
+            case FUNCTION -> out.add(wrap((CalcFunction) cls.getDeclaredConstructor().newInstance()));
+            case ANNOTATED -> {
+                Function meta = cls.getAnnotation(Function.class);
+                if (meta == null) {
+                    throw new IllegalArgumentException("missing @Function annotation");
+                }
+                out.add(wrap(new AnnotatedFunctionAdapter(cls.getDeclaredConstructor().newInstance(), meta)));
+            }
+        }
+    }
+
+    private static CalcFunction wrap(CalcFunction function) {
+        // Flight recorder events do not depend on metrics being enabled
+        return RecordedFunction.wrap(MeteredFunction.wrap(MemoizedFunction.wrapIfPure(function)));
+    }
+
+    /**
+     * Registers an indexed {@code @Function} class from its metadata alone; the
+     * class is loaded and instantiated when the function is first called.
+     */
+    private static CalcFunction lazy(String className, FunctionIndex.Metadata meta, ClassLoader loader) {
+        CachePolicy policy = meta.pure()
+                ? new CachePolicy(meta.cacheSize(), CachePolicy.Eviction.valueOf(meta.eviction()), meta.ttlMillis())
+                : CachePolicy.DEFAULT;
+        return AnnotatedFunctionAdapter.lazy(meta.name(), meta.insert(), meta.arity(), meta.pure(), policy, () -> {
+            try {
+                Class<?> cls = Class.forName(className, true, loader);
+                if (!cls.isAnnotationPresent(Function.class)) {
+                    throw new IllegalArgumentException("missing @Function annotation");
+                }
+                return cls.getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException(e.toString(), e);
+            }
+        });
+    }
+}
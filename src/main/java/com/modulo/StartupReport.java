@@ -0,0 +1,109 @@
+package com.modulo;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import java.io.PrintStream;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Times the start of the calculator window, from the launch of the JVM to the
+ * first paint, for {@code --startup-report}.
+ * <p>
+ * Milestones are recorded on whichever thread reaches them; the report is
+ * printed once the window has painted and the functions have loaded, which
+ * happen in either order.
+ * </p>
+ */
+final class StartupReport {
+
+    private final long mainNanos = System.nanoTime();
+    private final long launchToMainMillis;
+    private final Runnable whenDone;
+    private long windowNanos;
+    private long paintNanos;
+    private long functionsNanos;
+    private int functionCount;
+
+    /**
+     * Starts timing; call this first thing in {@code main}.
+     *
+     * @param whenDone Runs after the report is printed, e.g. to exit after a
+     *                 timing or class data sharing training run.
+     */
+    StartupReport(Runnable whenDone) {
+        this.whenDone = whenDone;
+        // Process start times are not available everywhere, and coarse on Linux
+        Optional<Instant> launched = ProcessHandle.current().info().startInstant();
+        this.launchToMainMillis = launched
+                .map(i -> Math.max(0, System.currentTimeMillis() - i.toEpochMilli()))
+                .orElse(-1L);
+    }
+
+    synchronized void windowBuilt() {
+        windowNanos = System.nanoTime();
+    }
+
+    synchronized void firstPaint() {
+        if (paintNanos == 0) {
+            paintNanos = System.nanoTime();
+            finishIfDone();
+        }
+    }
+
+    synchronized void functionsLoaded(int count) {
+        functionsNanos = System.nanoTime();
+        functionCount = count;
+        finishIfDone();
+    }
+
+    synchronized void functionsFailed() {
+        functionsLoaded(-1);
+    }
+
+    private void finishIfDone() {
+        if (paintNanos == 0 || functionsNanos == 0) {
+            return;
+        }
+        print(System.err);
+        whenDone.run();
+    }
+
+    private void print(PrintStream out) {
+        long base = Math.max(0, launchToMainMillis);
+        out.println("Startup (ms since launch" + (launchToMainMillis < 0 ? " unknown, from main" : "") + "):");
+        line(out, "main", base);
+        line(out, "window built", base + millis(windowNanos));
+        line(out, functionCount < 0 ? "functions failed" : functionCount + " functions loaded",
+                base + millis(functionsNanos));
+        line(out, "first paint", base + millis(paintNanos));
+    }
+
+    private long millis(long nanos) {
+        return (nanos - mainNanos) / 1_000_000;
+    }
+
+    private static void line(PrintStream out, String milestone, long millis) {
+        out.printf("  %-22s %6d%n", milestone, millis);
+    }
+}
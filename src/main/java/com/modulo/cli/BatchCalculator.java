@@ -0,0 +1,321 @@
+package com.modulo.cli;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import com.modulo.Registry.FunctionRegistry;
+import com.modulo.engine.FunctionSet;
+import com.modulo.engine.Parser;
+import com.modulo.format.DoubleFormatter;
+import com.modulo.metrics.Metrics;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Headless batch mode: evaluates one expression per input line.
+ * <p>
+ * The input is read in chunks of whole lines, from a memory-mapped file or
+ * from standard input, and each chunk is evaluated on a pool of worker
+ * threads. Results are written in input order, one line per input line:
+ * the value, an empty line for a blank input line, or {@code error: } and a
+ * message. At most a few chunks per worker are in flight at any time, so
+ * memory use does not depend on the size of the input. Throughput and error
+ * counts are reported on standard error at the end, followed by the
+ * {@linkplain Metrics call metrics} in the OpenMetrics text format with
+ * {@code -m}.
+ * </p>
+ *
+ * <pre>
+ * java -cp Modulator.jar com.modulo.cli.BatchCalculator [-t threads] [-o output] [-p digits] [-n notation] [-m] [input | -]
+ * </pre>
+ */
+public final class BatchCalculator {
+
+    private static final String USAGE =
+            "Usage: BatchCalculator [-t threads] [-o output] [-p digits] [-n auto|plain|scientific] [-m] [input | -]";
+
+    private final Parser parser;
+    private final int threads;
+    private final DoubleFormatter format;
+
+    /**
+     * Totals of a batch run.
+     *
+     * @param lines        Input lines read, including blank ones.
+     * @param errors       Lines that failed to parse or evaluate.
+     * @param bytes        Input bytes read.
+     * @param elapsedNanos Wall-clock duration of the run.
+     */
+    public record Report(long lines, long errors, long bytes, long elapsedNanos) {
+
+        /**
+         * Gets the number of lines processed per second.
+         *
+         * @return The line throughput.
+         */
+        public double linesPerSecond() {
+            return elapsedNanos == 0 ? 0 : lines * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = elapsedNanos / 1e9;
+            return String.format(Locale.ROOT, "%,d lines, %,d errors in %.2f s (%,.0f lines/s, %.1f MB/s)",
+                    lines, errors, seconds, linesPerSecond(), seconds == 0 ? 0 : bytes / 1e6 / seconds);
+        }
+    }
+
+    /**
+     * Constructs a new {@code BatchCalculator} that writes the shortest
+     * digits of each result.
+     *
+     * @param functions The functions available to expressions.
+     * @param threads   The number of worker threads.
+     */
+    public BatchCalculator(FunctionSet functions, int threads) {
+        this(functions, threads, DoubleFormatter.SHORTEST);
+    }
+
+    /**
+     * Constructs a new {@code BatchCalculator}.
+     *
+     * @param functions The functions available to expressions.
+     * @param threads   The number of worker threads.
+     * @param format    Formats the results.
+     */
+    public BatchCalculator(FunctionSet functions, int threads, DoubleFormatter format) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        // Each line is evaluated once, so optimizing it would only add work
+        this.parser = new Parser(functions, false);
+        this.threads = threads;
+        this.format = format;
+    }
+
+    /**
+     * Evaluates every line of a file, mapping it into memory.
+     *
+     * @param input  The input file.
+     * @param output Receives the results.
+     * @return The totals of the run.
+     * @throws IOException If reading or writing fails.
+     */
+    public Report run(Path input, WritableByteChannel output) throws IOException {
+        try (ChunkReader reader = ChunkReader.mapped(FileChannel.open(input, StandardOpenOption.READ))) {
+            return run(reader, output);
+        }
+    }
+
+    /**
+     * Evaluates every line read from a stream.
+     *
+     * @param input  The input stream.
+     * @param output Receives the results.
+     * @return The totals of the run.
+     * @throws IOException If reading or writing fails.
+     */
+    public Report run(ReadableByteChannel input, WritableByteChannel output) throws IOException {
+        try (ChunkReader reader = ChunkReader.streamed(input)) {
+            return run(reader, output);
+        }
+    }
+
+    private Report run(ChunkReader reader, WritableByteChannel output) throws IOException {
+        long start = System.nanoTime();
+        long bytes = 0;
+        LongAdder lines = new LongAdder();
+        LongAdder errors = new LongAdder();
+
+        ExecutorService workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "batch-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        // Results are written in submission order; waiting for the oldest
+        // chunk when the window is full bounds the memory in flight
+        int window = 2 * threads + 1;
+        ArrayDeque<Future<ByteBuffer>> pending = new ArrayDeque<>(window);
+        try {
+            ByteBuffer chunk;
+            while ((chunk = reader.next()) != null) {
+                if (pending.size() == window) {
+                    write(pending.removeFirst(), output);
+                }
+                bytes += chunk.remaining();
+                ByteBuffer c = chunk;
+                pending.addLast(workers.submit(() -> {
+                    StringBuilder out = new StringBuilder(c.remaining());
+                    Report r = evaluate(c, out);
+                    lines.add(r.lines());
+                    errors.add(r.errors());
+                    return StandardCharsets.UTF_8.encode(CharBuffer.wrap(out));
+                }));
+            }
+            while (!pending.isEmpty()) {
+                write(pending.removeFirst(), output);
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        return new Report(lines.sum(), errors.sum(), bytes, System.nanoTime() - start);
+    }
+
+    private static void write(Future<ByteBuffer> result, WritableByteChannel output) throws IOException {
+        ByteBuffer buffer;
+        try {
+            buffer = result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Evaluation failed: " + e.getCause(), e.getCause());
+        }
+        while (buffer.hasRemaining()) {
+            output.write(buffer);
+        }
+    }
+
+    /**
+     * Evaluates lines in the calling thread.
+     * <p>
+     * One result line is appended per input line, in the same format as the
+     * batch mode writes them.
+     * </p>
+     *
+     * @param input The UTF-8 encoded lines; consumed.
+     * @param out   Receives the result lines.
+     * @return The totals.
+     */
+    public Report evaluate(ByteBuffer input, StringBuilder out) {
+        long begin = System.nanoTime();
+        int bytes = input.remaining();
+        String text = StandardCharsets.UTF_8.decode(input).toString();
+        int count = 0;
+        int failed = 0;
+        for (int start = 0; start < text.length(); ) {
+            int newline = text.indexOf('\n', start);
+            int end = newline < 0 ? text.length() : newline;
+            int next = end + 1;
+            if (end > start && text.charAt(end - 1) == '\r') {
+                end--;
+            }
+            count++;
+            String line = text.substring(start, end);
+            if (!line.isBlank()) {
+                try {
+                    format.appendTo(out, parser.parse(line).evaluate());
+                } catch (RuntimeException e) {
+                    // A syntax error, or thrown by a function for an argument out of range
+                    failed++;
+                    out.append("error: ").append(e.getMessage() != null ? e.getMessage() : e.toString());
+                }
+            }
+            out.append('\n');
+            start = next;
+        }
+        return new Report(count, failed, bytes, System.nanoTime() - begin);
+    }
+
+    /**
+     * Runs the batch mode from the command line.
+     *
+     * @param args {@code [-t threads] [-o output] [-p digits] [-n notation] [-m] [input | -]};
+     *             reads standard input and writes the shortest digits of
+     *             each result to standard output by default.
+     */
+    public static void main(String[] args) {
+        PrintStream err = System.err;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path output = null;
+        int precision = 0;
+        DoubleFormatter.Notation notation = DoubleFormatter.Notation.AUTO;
+        DoubleFormatter format = DoubleFormatter.SHORTEST;
+        boolean metrics = false;
+        String input = "-";
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-t", "--threads" -> threads = Integer.parseInt(args[++i]);
+                    case "-o", "--output" -> output = Path.of(args[++i]);
+                    case "-p", "--precision" -> precision = Integer.parseInt(args[++i]);
+                    case "-n", "--notation" -> notation = DoubleFormatter.Notation.parse(args[++i]);
+                    case "-m", "--metrics" -> metrics = true;
+                    case "-h", "--help" -> {
+                        err.println(USAGE);
+                        return;
+                    }
+                    default -> {
+                        if (args[i].startsWith("-") && !args[i].equals("-")) {
+                            throw new IllegalArgumentException("Unknown option: " + args[i]);
+                        }
+                        input = args[i];
+                    }
+                }
+            }
+            format = new DoubleFormatter(precision, notation);
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            err.println(e instanceof ArrayIndexOutOfBoundsException ? "Missing option value" : e.getMessage());
+            err.println(USAGE);
+            System.exit(2);
+        }
+
+        FunctionRegistry.loadFunctions();
+        BatchCalculator batch = new BatchCalculator(FunctionRegistry.snapshot(), threads, format);
+        try (WritableByteChannel out = output != null
+                ? FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)
+                : new FileOutputStream(FileDescriptor.out).getChannel()) {
+            Report report = input.equals("-")
+                    ? batch.run(Channels.newChannel(System.in), out)
+                    : batch.run(Path.of(input), out);
+            err.println(report);
+            if (metrics) {
+                StringBuilder sb = new StringBuilder(4096);
+                Metrics.writeOpenMetrics(sb);
+                err.print(sb);
+            }
+        } catch (IOException e) {
+            err.println("Batch failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.modulo.cli;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Splits an input into chunks of whole lines.
+ * <p>
+ * Each chunk ends just after a newline, except possibly the last one, so
+ * chunks can be processed independently. The reader only looks for chunk
+ * boundaries; splitting and decoding the lines is left to the consumer.
+ * </p>
+ */
+abstract class ChunkReader implements Closeable {
+
+    /** Target size of a chunk in bytes. */
+    static final int CHUNK_BYTES = 1 << 20;
+
+    /**
+     * Reads the next chunk.
+     *
+     * @return The chunk, positioned at its first byte, or {@code null} at the
+     *         end of the input.
+     * @throws IOException If the input cannot be read.
+     */
+    abstract ByteBuffer next() throws IOException;
+
+    /**
+     * Creates a reader that maps a file into memory window by window.
+     *
+     * @param channel The file, open for reading.
+     * @return The reader.
+     * @throws IOException If the size of the file cannot be read.
+     */
+    static ChunkReader mapped(FileChannel channel) throws IOException {
+        return new Mapped(channel);
+    }
+
+    /**
+     * Creates a reader that copies a stream into chunk-sized arrays.
+     *
+     * @param channel The stream.
+     * @return The reader.
+     */
+    static ChunkReader streamed(ReadableByteChannel channel) {
+        return new Streamed(channel);
+    }
+
+    /**
+     * Reads a file through read-only mappings of up to {@link #WINDOW} bytes.
+     * Chunks are slices of the current mapping, so the file content is never
+     * copied onto the heap.
+     */
+    private static final class Mapped extends ChunkReader {
+        // A single mapping is limited to Integer.MAX_VALUE bytes
+        static final int WINDOW = 1 << 30;
+
+        private final FileChannel channel;
+        private final long size;
+        private long windowStart;
+        private MappedByteBuffer window;
+        private int pos;
+
+        Mapped(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        @Override
+        ByteBuffer next() throws IOException {
+            while (true) {
+                if (window == null || pos == window.limit()) {
+                    if (windowStart + pos >= size) {
+                        return null;
+                    }
+                    map(windowStart + pos);
+                }
+                int end = boundary(pos + CHUNK_BYTES);
+                if (end > 0) {
+                    ByteBuffer chunk = window.slice(pos, end - pos);
+                    pos = end;
+                    return chunk;
+                }
+                if (pos == 0) {
+                    throw new IOException("Line longer than " + WINDOW + " bytes at offset " + windowStart);
+                }
+                // The line runs past the mapping; map again starting with it
+                map(windowStart + pos);
+            }
+        }
+
+        /**
+         * Finds the end of the chunk: the first newline at or after
+         * {@code target}, else the end of the file, else the last newline in
+         * the mapping.
+         *
+         * @return The index after the end of the chunk, or {@code -1} if the
+         *         rest of the mapping holds no complete line.
+         */
+        private int boundary(int target) {
+            int limit = window.limit();
+            for (int i = target; i >= 0 && i < limit; i++) {
+                if (window.get(i) == '\n') {
+                    return i + 1;
+                }
+            }
+            if (windowStart + limit == size) {
+                return limit;
+            }
+            for (int i = limit - 1; i >= pos; i--) {
+                if (window.get(i) == '\n') {
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+
+        private void map(long start) throws IOException {
+            windowStart = start;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW, size - start));
+            pos = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Reads a stream into a fresh array per chunk, carrying the incomplete
+     * last line over to the next chunk.
+     */
+    private static final class Streamed extends ChunkReader {
+        private final ReadableByteChannel channel;
+        private byte[] carry = new byte[0];
+        private int carryLength;
+        private boolean eof;
+
+        Streamed(ReadableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        ByteBuffer next() throws IOException {
+            if (eof && carryLength == 0) {
+                return null;
+            }
+            byte[] bytes = Arrays.copyOf(carry, Math.max(CHUNK_BYTES, carryLength + CHUNK_BYTES / 2));
+            int length = carryLength;
+            int scanned = 0;
+            while (true) {
+                // Fill the array, then cut after the last newline
+                while (!eof && length < bytes.length) {
+                    int n = channel.read(ByteBuffer.wrap(bytes, length, bytes.length - length));
+                    if (n < 0) {
+                        eof = true;
+                    } else {
+                        length += n;
+                    }
+                }
+                int end = length;
+                if (!eof) {
+                    end = lastNewline(bytes, scanned, length) + 1;
+                }
+                if (end > 0 || eof) {
+                    carryLength = length - end;
+                    carry = Arrays.copyOfRange(bytes, end, length);
+                    return length == 0 ? null : ByteBuffer.wrap(bytes, 0, end);
+                }
+                // A single line fills the array
+                scanned = length;
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+        }
+
+        private static int lastNewline(byte[] bytes, int from, int to) {
+            for (int i = to - 1; i >= from; i--) {
+                if (bytes[i] == '\n') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
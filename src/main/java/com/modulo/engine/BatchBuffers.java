@@ -0,0 +1,104 @@
+package com.modulo.engine;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scratch arrays for column-wise evaluation of a single batch.
+ * <p>
+ * Buffers are handed out and returned in stack order while the tree is walked,
+ * so after the first chunk a batch runs without allocating. An instance
+ * belongs to one batch call and is not thread-safe.
+ * </p>
+ */
+final class BatchBuffers {
+
+    /** Rows per chunk; small enough that a chunk's buffers stay in cache. */
+    static final int CHUNK = 1024;
+
+    private final ArrayDeque<double[]> free = new ArrayDeque<>();
+    private final List<ArrayDeque<double[][]>> freeArgColumns = new ArrayList<>();
+    private final List<double[]> rows = new ArrayList<>();
+
+    /**
+     * Takes a chunk-sized buffer.
+     *
+     * @return A buffer of {@link #CHUNK} elements with unspecified content.
+     */
+    double[] take() {
+        double[] buffer = free.poll();
+        return buffer != null ? buffer : new double[CHUNK];
+    }
+
+    /**
+     * Returns a buffer obtained from {@link #take()}.
+     *
+     * @param buffer The buffer to return.
+     */
+    void release(double[] buffer) {
+        free.push(buffer);
+    }
+
+    /**
+     * Takes an array to hold the argument columns of a function call.
+     *
+     * @param arity The number of arguments.
+     * @return An array of {@code arity} slots.
+     */
+    double[][] argColumns(int arity) {
+        double[][] columns = pool(arity).poll();
+        return columns != null ? columns : new double[arity][];
+    }
+
+    /**
+     * Returns an array obtained from {@link #argColumns(int)}.
+     *
+     * @param columns The array to return.
+     */
+    void releaseArgColumns(double[][] columns) {
+        pool(columns.length).push(columns);
+    }
+
+    /**
+     * Gets the argument row reused for per-element calls of the given arity.
+     *
+     * @param arity The number of arguments.
+     * @return A shared array of {@code arity} elements.
+     */
+    double[] row(int arity) {
+        while (rows.size() <= arity) {
+            rows.add(new double[rows.size()]);
+        }
+        return rows.get(arity);
+    }
+
+    private ArrayDeque<double[][]> pool(int arity) {
+        while (freeArgColumns.size() <= arity) {
+            freeArgColumns.add(new ArrayDeque<>());
+        }
+        return freeArgColumns.get(arity);
+    }
+}
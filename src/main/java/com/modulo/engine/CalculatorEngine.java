@@ -0,0 +1,231 @@
+package com.modulo.engine;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import com.modulo.internal.CalcFunction;
+import com.modulo.internal.MemoCache;
+import com.modulo.internal.MemoizedFunction;
+import com.modulo.jfr.RecordedFunction;
+import com.modulo.metrics.MeteredFunction;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Headless entry point for parsing and evaluating expressions.
+ * <p>
+ * An engine is bound to one immutable {@link FunctionSet} and keeps an
+ * {@link ExpressionCache} of recently used expressions. It has no UI
+ * dependencies and all methods are thread-safe, so a single instance can be
+ * shared by any number of threads; function implementations must be
+ * thread-safe themselves. When the available functions change, create a new
+ * engine from the new function set.
+ * </p>
+ *
+ * <pre>
+ * CalculatorEngine engine = new CalculatorEngine(FunctionRegistry.snapshot());
+ * double r = engine.evaluate("max(2, 3) * sqrt(16)");
+ * </pre>
+ * <p>
+ * Engines evaluate in {@code double} unless constructed with another
+ * {@link NumericMode}.
+ * </p>
+ */
+public final class CalculatorEngine {
+
+    /** Number of expressions cached by default. */
+    public static final int DEFAULT_CACHE_SIZE = 256;
+
+    private final FunctionSet functions;
+    private final Parser parser;
+    private final ExpressionCache cache;
+    private final NumericMode mode;
+    private final MathContext context;
+
+    /**
+     * Constructs an engine with the default cache size.
+     *
+     * @param functions The functions available to expressions.
+     */
+    public CalculatorEngine(FunctionSet functions) {
+        this(functions, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Constructs a new {@code CalculatorEngine}.
+     *
+     * @param functions The functions available to expressions.
+     * @param cacheSize The maximum number of cached expressions.
+     */
+    public CalculatorEngine(FunctionSet functions, int cacheSize) {
+        this(functions, cacheSize, NumericMode.DOUBLE, MathContext.DECIMAL128);
+    }
+
+    /**
+     * Constructs an engine that evaluates in the given numeric mode.
+     *
+     * @param functions The functions available to expressions.
+     * @param cacheSize The maximum number of cached expressions.
+     * @param mode      The arithmetic of {@link #evaluate(String)}.
+     * @param context   The precision and rounding of decimal arithmetic.
+     */
+    public CalculatorEngine(FunctionSet functions, int cacheSize, NumericMode mode, MathContext context) {
+        this.functions = functions;
+        this.parser = new Parser(functions);
+        this.cache = new ExpressionCache(parser, cacheSize);
+        this.mode = mode;
+        this.context = context;
+    }
+
+    /**
+     * Parses an expression, reusing a cached parse if available.
+     *
+     * @param text      The expression text.
+     * @param variables The free variables, in slot order.
+     * @return The parsed expression.
+     * @throws ExpressionException If the text is not a valid expression.
+     */
+    public Expression parse(String text, String... variables) {
+        return cache.get(text, variables);
+    }
+
+    /**
+     * Evaluates an expression without free variables in this engine's
+     * numeric mode.
+     * <p>
+     * In the decimal mode the result is the decimal result rounded to
+     * {@code double}; see {@link #evaluateDecimal(String)} for all of its
+     * digits.
+     * </p>
+     *
+     * @param text The expression text.
+     * @return The result of the evaluation.
+     * @throws ExpressionException If the text is not a valid expression.
+     * @throws ArithmeticException If decimal arithmetic divides by zero.
+     */
+    public double evaluate(String text) {
+        Expression expression = cache.get(text);
+        return switch (mode) {
+            case DOUBLE -> expression.evaluate();
+            case DECIMAL -> expression.evaluateDecimal(context).doubleValue();
+            case HYBRID -> expression.evaluateHybrid(context);
+        };
+    }
+
+    /**
+     * Evaluates an expression without free variables in decimal arithmetic,
+     * whatever this engine's numeric mode.
+     *
+     * @param text The expression text.
+     * @return The result of the evaluation, rounded to this engine's
+     *         {@link MathContext}.
+     * @throws ExpressionException If the text is not a valid expression.
+     * @throws ArithmeticException On division by zero, or if a function has
+     *                             no finite result.
+     */
+    public BigDecimal evaluateDecimal(String text) {
+        return cache.get(text).evaluateDecimal(context);
+    }
+
+    /**
+     * Parses and compiles an expression to bytecode.
+     *
+     * @param text      The expression text.
+     * @param variables The free variables, in slot order.
+     * @return The compiled expression.
+     * @throws ExpressionException If the text is not a valid expression.
+     */
+    public CompiledExpression compile(String text, String... variables) {
+        return cache.get(text, variables).compile();
+    }
+
+    /**
+     * Gets the arithmetic of {@link #evaluate(String)}.
+     *
+     * @return The numeric mode.
+     */
+    public NumericMode getNumericMode() {
+        return mode;
+    }
+
+    /**
+     * Gets the precision and rounding of decimal arithmetic.
+     *
+     * @return The math context.
+     */
+    public MathContext getMathContext() {
+        return context;
+    }
+
+    /**
+     * Gets the functions this engine resolves calls against.
+     *
+     * @return The function set.
+     */
+    public FunctionSet getFunctions() {
+        return functions;
+    }
+
+    /**
+     * Gets the statistics of the expression cache.
+     *
+     * @return The cache statistics.
+     */
+    public ExpressionCache.Stats getCacheStats() {
+        return cache.getStats();
+    }
+
+    /**
+     * Gets the totals of what the optimizer did to the expressions this engine
+     * has parsed.
+     *
+     * @return The optimizer statistics.
+     */
+    public Optimizer.Stats getOptimizationStats() {
+        return parser.getOptimizationStats();
+    }
+
+    /**
+     * Gets the result cache statistics of the pure functions.
+     *
+     * @return The statistics by function name, in display order; functions
+     *         without a result cache are omitted.
+     */
+    public Map<String, MemoCache.Stats> getFunctionCacheStats() {
+        Map<String, MemoCache.Stats> stats = new LinkedHashMap<>();
+        for (CalcFunction f : functions.getFunctions()) {
+            if (f instanceof RecordedFunction recorded) {
+                f = recorded.getDelegate();
+            }
+            if (f instanceof MeteredFunction metered) {
+                f = metered.getDelegate();
+            }
+            if (f instanceof MemoizedFunction m) {
+                stats.put(f.getName(), m.getCacheStats());
+            }
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,436 @@
+package com.modulo.engine;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import com.modulo.jfr.EvaluateEvent;
+import com.modulo.metrics.CallStats;
+import com.modulo.metrics.Metrics;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A parsed, immutable expression.
+ * <p>
+ * An {@code Expression} is produced once by a {@link Parser} and can then be
+ * evaluated repeatedly without touching the source text again. Instances are
+ * safe to share between threads.
+ * </p>
+ * <p>
+ * Besides {@code double}, an expression can be evaluated in each of the other
+ * {@link NumericMode}s: in decimal arithmetic with
+ * {@link #evaluateDecimal(MathContext, BigDecimal...)}, or in {@code double}
+ * refined in decimal when needed with
+ * {@link #evaluateHybrid(MathContext, double...)}.
+ * </p>
+ */
+public final class Expression {
+
+    private static final double[] NO_VARIABLES = new double[0];
+
+    private final String source;
+    private final Node root;
+    private final Node parsed;
+    private final List<String> variables;
+    private final int temps;
+    private final Optimizer.Stats optimization;
+    private final int nodeCount;
+    private volatile CompiledExpression compiled;
+    private volatile PreciseNode precise;
+
+    Expression(String source, Node root, Node parsed, List<String> variables, int temps,
+            Optimizer.Stats optimization) {
+        this.source = source;
+        this.root = root;
+        this.parsed = parsed;
+        this.variables = variables;
+        this.temps = temps;
+        this.optimization = optimization;
+        this.nodeCount = root.size();
+    }
+
+    /**
+     * Evaluates an expression without free variables.
+     *
+     * @return The result of the evaluation.
+     */
+    public double evaluate() {
+        return evaluate(NO_VARIABLES);
+    }
+
+    /**
+     * Evaluates the expression for one set of variable values.
+     *
+     * @param values The variable values, in declaration order.
+     * @return The result of the evaluation.
+     * @throws IllegalArgumentException If the number of values does not match
+     *                                  the number of variables.
+     */
+    public double evaluate(double... values) {
+        if (values.length != variables.size()) {
+            throw new IllegalArgumentException(
+                    "Expected " + variables.size() + " variable values, got " + values.length);
+        }
+        // Shared subexpressions are kept in slots after the variables
+        double[] frame = temps == 0 ? values : Arrays.copyOf(values, values.length + temps);
+        EvaluateEvent event = new EvaluateEvent();
+        event.begin();
+        CallStats stats = Metrics.isEnabled() ? Metrics.evaluate() : null;
+        long start = stats != null ? stats.start() : 0;
+        try {
+            double result = root.evaluate(frame);
+            if (stats != null) {
+                stats.stop(start);
+            }
+            event.emit(source, result);
+            return result;
+        } catch (RuntimeException e) {
+            if (stats != null) {
+                stats.fail();
+            }
+            event.emit(source, 1, EvaluateEvent.ERROR);
+            throw e;
+        }
+    }
+
+    /**
+     * Evaluates the expression once per row of the given input columns.
+     * <p>
+     * {@code columns[v][i]} is the value of variable {@code v} in row
+     * {@code i}, and the result of row {@code i} is written to {@code out[i]}
+     * for every row of {@code out}. Rows are processed column-wise in chunks,
+     * so the cost of walking the tree is paid once per chunk rather than once
+     * per row, and no memory is allocated per row. Functions implementing
+     * {@link com.modulo.internal.ArrayFunction} receive whole argument columns;
+     * other functions are called per row with a reused argument array.
+     * </p>
+     *
+     * @param columns The input columns, one per variable, each at least as long
+     *                as {@code out}.
+     * @param out     Receives the results.
+     * @throws IllegalArgumentException If the columns do not match the
+     *                                  variables or are too short.
+     */
+    public void evaluate(double[][] columns, double[] out) {
+        if (columns.length != variables.size()) {
+            throw new IllegalArgumentException(
+                    "Expected " + variables.size() + " input columns, got " + columns.length);
+        }
+        for (double[] column : columns) {
+            if (column.length < out.length) {
+                throw new IllegalArgumentException("Input column shorter than output");
+            }
+        }
+
+        BatchBuffers buffers = new BatchBuffers();
+        double[][] frame = columns;
+        if (temps > 0) {
+            frame = Arrays.copyOf(columns, columns.length + temps);
+            for (int t = columns.length; t < frame.length; t++) {
+                frame[t] = buffers.take();
+            }
+        }
+        double[] chunk = buffers.take();
+        EvaluateEvent event = new EvaluateEvent();
+        event.begin();
+        CallStats stats = Metrics.isEnabled() ? Metrics.evaluate() : null;
+        long start = stats != null ? stats.start(out.length) : 0;
+        try {
+            for (int offset = 0; offset < out.length; offset += BatchBuffers.CHUNK) {
+                int length = Math.min(BatchBuffers.CHUNK, out.length - offset);
+                root.evaluate(frame, offset, length, chunk, buffers);
+                System.arraycopy(chunk, 0, out, offset, length);
+            }
+        } catch (RuntimeException e) {
+            if (stats != null) {
+                stats.fail();
+            }
+            event.emit(source, out.length, EvaluateEvent.ERROR);
+            throw e;
+        }
+        if (stats != null) {
+            // Timed as the mean per row
+            stats.stop(start, out.length);
+        }
+        event.emit(source, out.length,
+                out.length > 0 ? EvaluateEvent.statusOf(out[out.length - 1]) : EvaluateEvent.OK);
+    }
+
+    /**
+     * Evaluates the expression in decimal arithmetic.
+     * <p>
+     * Literals are read exactly as written, so {@code 0.1+0.2} is
+     * {@code 0.3}, and every operation is rounded to {@code context}.
+     * Functions implementing {@link com.modulo.internal.DecimalFunction}
+     * compute in decimal; others are called with their arguments rounded to
+     * {@code double}, and their result is taken as the shortest decimal that
+     * rounds to it.
+     * </p>
+     *
+     * @param context The precision and rounding of every operation.
+     * @param values  The variable values, in declaration order.
+     * @return The result of the evaluation.
+     * @throws IllegalArgumentException If the number of values does not match
+     *                                  the number of variables.
+     * @throws ArithmeticException      On division by zero, or if a function
+     *                                  has no finite result.
+     */
+    public BigDecimal evaluateDecimal(MathContext context, BigDecimal... values) {
+        if (values.length != variables.size()) {
+            throw new IllegalArgumentException(
+                    "Expected " + variables.size() + " variable values, got " + values.length);
+        }
+        EvaluateEvent event = new EvaluateEvent();
+        event.begin();
+        CallStats stats = Metrics.isEnabled() ? Metrics.evaluate() : null;
+        long start = stats != null ? stats.start() : 0;
+        try {
+            BigDecimal result = precise().evaluate(values, context);
+            if (stats != null) {
+                stats.stop(start);
+            }
+            event.emit(source, 1, EvaluateEvent.OK);
+            return result;
+        } catch (RuntimeException e) {
+            if (stats != null) {
+                stats.fail();
+            }
+            event.emit(source, 1, EvaluateEvent.ERROR);
+            throw e;
+        }
+    }
+
+    /**
+     * Evaluates the expression in {@code double}, refining the result in
+     * decimal arithmetic only when it may differ from the decimal one.
+     * <p>
+     * The {@code double} evaluation keeps a bound on its error. When every
+     * number within that bound rounds to the same {@code double}, the result
+     * is returned as is; otherwise the expression is evaluated again with
+     * {@link #evaluateDecimal(MathContext, BigDecimal...)} and that result is
+     * rounded to {@code double}. Exact integer arithmetic and most divisions
+     * never need the decimal step, while {@code 0.1+0.2} does, and gives
+     * {@code 0.3}. Infinite and NaN results always take the decimal step, so
+     * they fail as they do in decimal, and expressions that call impure
+     * functions are evaluated in decimal right away, so that no function is
+     * called twice.
+     * </p>
+     *
+     * @param context The precision and rounding of the decimal evaluation.
+     * @param values  The variable values, in declaration order; taken as
+     *                exact.
+     * @return The result of the evaluation.
+     * @throws IllegalArgumentException If the number of values does not match
+     *                                  the number of variables.
+     * @throws ArithmeticException      If the decimal evaluation divides by
+     *                                  zero, or a function has no finite
+     *                                  result.
+     */
+    public double evaluateHybrid(MathContext context, double... values) {
+        if (values.length != variables.size()) {
+            throw new IllegalArgumentException(
+                    "Expected " + variables.size() + " variable values, got " + values.length);
+        }
+        PreciseNode p = precise();
+        EvaluateEvent event = new EvaluateEvent();
+        event.begin();
+        CallStats stats = Metrics.isEnabled() ? Metrics.evaluate() : null;
+        long start = stats != null ? stats.start() : 0;
+        try {
+            double result = Double.NaN;
+            boolean settled = false;
+            if (!p.callsImpure()) {
+                PreciseNode.Bound bound = new PreciseNode.Bound();
+                result = p.evaluate(values, bound);
+                settled = Double.isFinite(result) && PreciseNode.isSettled(result, bound.error);
+                // Decimal has no negative zero
+                result += 0.0;
+            }
+            if (!settled) {
+                result = escalate(p, context, values);
+            }
+            if (stats != null) {
+                stats.stop(start);
+            }
+            event.emit(source, result);
+            return result;
+        } catch (RuntimeException e) {
+            if (stats != null) {
+                stats.fail();
+            }
+            event.emit(source, 1, EvaluateEvent.ERROR);
+            throw e;
+        }
+    }
+
+    private static double escalate(PreciseNode p, MathContext context, double[] values) {
+        BigDecimal[] decimals = new BigDecimal[values.length];
+        for (int i = 0; i < values.length; i++) {
+            decimals[i] = new BigDecimal(values[i]);
+        }
+        CallStats stats = Metrics.isEnabled() ? Metrics.escalate() : null;
+        long start = stats != null ? stats.start() : 0;
+        try {
+            double result = p.evaluate(decimals, context).doubleValue();
+            if (stats != null) {
+                stats.stop(start);
+            }
+            return result;
+        } catch (RuntimeException e) {
+            if (stats != null) {
+                stats.fail();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the form evaluated by the decimal and hybrid modes, building it on
+     * first use.
+     */
+    private PreciseNode precise() {
+        PreciseNode p = precise;
+        if (p == null) {
+            // Racing threads may both build it; either result is equivalent
+            p = PreciseNode.of(parsed);
+            precise = p;
+        }
+        return p;
+    }
+
+    /**
+     * Compiles the expression to bytecode.
+     * <p>
+     * The result computes the same value as {@link #evaluate(double...)}, but
+     * runs as a generated class that the JIT can optimize as a whole. This is
+     * worthwhile for expressions that are evaluated many times. The compiled
+     * form is created once and kept with this expression.
+     * </p>
+     * <p>
+     * Calls to the compiled form are neither metered nor recorded, so a call
+     * site that evaluates one expression can inline its generated class.
+     * {@link #evaluateCompiled(double...)} evaluates it with both.
+     * </p>
+     *
+     * @return The compiled expression.
+     */
+    public CompiledExpression compile() {
+        CompiledExpression c = compiled;
+        if (c == null) {
+            // Racing threads may both compile; either result is equivalent
+            compiled = c = ExpressionCompiler.compile(root, temps);
+        }
+        return c;
+    }
+
+    /**
+     * Evaluates the compiled form of the expression for one set of variable
+     * values, with the metrics and flight recorder events of
+     * {@link #evaluate(double...)}.
+     *
+     * @param values The variable values, in declaration order.
+     * @return The result of the evaluation.
+     * @throws IllegalArgumentException If the number of values does not match
+     *                                  the number of variables.
+     */
+    public double evaluateCompiled(double... values) {
+        if (values.length != variables.size()) {
+            throw new IllegalArgumentException(
+                    "Expected " + variables.size() + " variable values, got " + values.length);
+        }
+        CompiledExpression c = compile();
+        EvaluateEvent event = new EvaluateEvent();
+        event.begin();
+        CallStats stats = Metrics.isEnabled() ? Metrics.evaluate() : null;
+        long start = stats != null ? stats.start() : 0;
+        try {
+            double result = c.evaluate(values);
+            if (stats != null) {
+                stats.stop(start);
+            }
+            event.emit(source, result);
+            return result;
+        } catch (RuntimeException e) {
+            if (stats != null) {
+                stats.fail();
+            }
+            event.emit(source, 1, EvaluateEvent.ERROR);
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the text this expression was parsed from.
+     *
+     * @return The source text.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Gets the names of the free variables, in slot order.
+     *
+     * @return An immutable list of variable names.
+     */
+    public List<String> getVariables() {
+        return variables;
+    }
+
+    /**
+     * Counts the nodes of the expression tree.
+     *
+     * @return The node count.
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Gets what the optimizer did to this expression.
+     *
+     * @return The optimizer statistics, or {@code null} if the expression was
+     *         parsed without optimization.
+     */
+    public Optimizer.Stats getOptimization() {
+        return optimization;
+    }
+
+    Node root() {
+        return root;
+    }
+
+    /**
+     * Returns the canonical, fully parenthesized form of the expression.
+     *
+     * @return The canonical text.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(source.length() + 16);
+        root.appendTo(sb);
+        return sb.toString();
+    }
+}
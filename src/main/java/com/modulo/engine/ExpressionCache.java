@@ -0,0 +1,178 @@
+package com.modulo.engine;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A size-bounded, least-recently-used cache of parsed expressions.
+ * <p>
+ * Keys are built from the tokens the {@link Lexer} reads, so {@code "1 + 2"}
+ * and {@code "1+2"} share an entry, while texts whose whitespace changes the
+ * tokens, such as {@code "(* 3(4))"} and {@code "(*3(4))"} with a function
+ * named {@code *3}, do not. Cached {@link Expression}s
+ * keep their compiled form, so repeated lookups skip both parsing and
+ * compilation. Because expressions capture function instances, the cache must
+ * be {@link #invalidate() invalidated} when the function set changes.
+ * </p>
+ * <p>
+ * All methods are thread-safe. Parsing happens outside the lock, so a slow
+ * parse never blocks lookups of other expressions.
+ * </p>
+ */
+public final class ExpressionCache {
+
+    private final Parser parser;
+    private final int maxSize;
+    private final LinkedHashMap<String, Expression> entries;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Hit, miss and eviction counters of an {@link ExpressionCache}.
+     *
+     * @param hits      Lookups answered from the cache.
+     * @param misses    Lookups that had to parse.
+     * @param evictions Entries dropped to stay within the size bound.
+     * @param size      The current number of entries.
+     */
+    public record Stats(long hits, long misses, long evictions, int size) {
+
+        /**
+         * Gets the fraction of lookups answered from the cache.
+         *
+         * @return The hit rate between 0 and 1, or 0 if there were no lookups.
+         */
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : hits / (double) total;
+        }
+    }
+
+    /**
+     * Constructs a new {@code ExpressionCache}.
+     *
+     * @param parser  The parser used on cache misses.
+     * @param maxSize The maximum number of cached expressions.
+     */
+    public ExpressionCache(Parser parser, int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.parser = parser;
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Expression> eldest) {
+                if (size() > ExpressionCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the parsed form of the given text, parsing it on a miss.
+     *
+     * @param text      The expression text.
+     * @param variables The free variables, as for
+     *                  {@link Parser#parse(String, String...)}.
+     * @return The parsed expression.
+     * @throws ExpressionException If the text is not a valid expression. Failed
+     *                             parses are not cached.
+     */
+    public Expression get(String text, String... variables) {
+        String key;
+        try {
+            key = key(text, variables);
+        } catch (ExpressionException e) {
+            // Not cached; let the parser report the error
+            synchronized (this) {
+                misses++;
+            }
+            return parser.parse(text, variables);
+        }
+
+        synchronized (this) {
+            Expression cached = entries.get(key);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+        }
+
+        // The key only finds equivalent texts; what is parsed is what was given
+        Expression parsed = parser.parse(text, variables);
+        synchronized (this) {
+            Expression raced = entries.putIfAbsent(key, parsed);
+            return raced != null ? raced : parsed;
+        }
+    }
+
+    /**
+     * Removes all entries. Counters are kept.
+     */
+    public synchronized void invalidate() {
+        entries.clear();
+    }
+
+    /**
+     * Gets a snapshot of the cache counters.
+     *
+     * @return The current statistics.
+     */
+    public synchronized Stats getStats() {
+        return new Stats(hits, misses, evictions, entries.size());
+    }
+
+    /**
+     * Builds the key of a text from its tokens, so that two texts share a key
+     * exactly when they lex the same. Each token is written as its type
+     * followed by its text, with the variables in front.
+     *
+     * @param text      The expression text.
+     * @param variables The free variables.
+     * @return The key.
+     * @throws ExpressionException If the text cannot be tokenized.
+     */
+    private String key(String text, String... variables) {
+        List<Token> tokens = Lexer.tokenize(text, parser.getFunctions());
+        StringBuilder sb = new StringBuilder(text.length() + 2 * tokens.size() + 8);
+        sb.append(String.join(",", variables)).append('\u0000');
+        for (Token token : tokens) {
+            Token.Type type = token.type();
+            sb.append((char) ('A' + type.ordinal()));
+            if (type == Token.Type.NUMBER || type == Token.Type.IDENTIFIER || type == Token.Type.FUNCTION) {
+                sb.append(text, token.start(), token.end()).append('\u0000');
+            }
+        }
+        return sb.toString();
+    }
+}
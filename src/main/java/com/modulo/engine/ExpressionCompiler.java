@@ -0,0 +1,439 @@
+package com.modulo.engine;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import com.modulo.internal.CalcFunction;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles expression trees into JVM bytecode.
+ * <p>
+ * Each expression becomes a hidden class implementing
+ * {@link CompiledExpression} whose {@code evaluate(double[])} method is the
+ * straight-line translation of the tree; variables are read straight from the
+ * argument array and shared subexpressions are kept in local variables.
+ * Functions are held in {@code final} fields typed with their concrete class
+ * where possible, so calls are emitted as direct {@code invokevirtual}s that
+ * the JIT can inline together with the surrounding arithmetic.
+ * </p>
+ * <p>
+ * Compiled classes capture the function instances of the tree, so they are
+ * cached on the owning {@link Expression} and share its lifetime. Hidden
+ * classes are unloaded by the garbage collector once the expression is no
+ * longer referenced, e.g. after an {@link ExpressionCache} is invalidated.
+ * </p>
+ */
+final class ExpressionCompiler {
+
+    private static final String CLASS_NAME = "com/modulo/engine/GeneratedExpression";
+    private static final String CALC_FUNCTION = "com/modulo/internal/CalcFunction";
+    private static final String[] FIXED_ARITY = {
+            "com/modulo/internal/NullaryFunction",
+            "com/modulo/internal/UnaryFunction",
+            "com/modulo/internal/BinaryFunction",
+            "com/modulo/internal/TernaryFunction" };
+
+    private ExpressionCompiler() {
+    }
+
+    /**
+     * Compiles the given tree.
+     * <p>
+     * Trees too large for a single JVM method fall back to the interpreter.
+     * </p>
+     *
+     * @param root  The expression tree.
+     * @param temps The number of temporary slots the tree uses.
+     * @return The compiled expression.
+     */
+    static CompiledExpression compile(Node root, int temps) {
+        Generator gen = new Generator();
+        gen.emit(root);
+        if (gen.code.size() > 0xFFFF || gen.maxLocals > 0xFFFF) {
+            return interpreted(root, temps);
+        }
+        try {
+            byte[] bytes = gen.toClassFile();
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            Object[] functions = gen.functions.toArray();
+            return (CompiledExpression) lookup
+                    .findConstructor(lookup.lookupClass(), MethodType.methodType(void.class, Object[].class))
+                    .invoke(functions);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed to compile expression: " + e.getMessage(), e);
+        }
+    }
+
+    private static CompiledExpression interpreted(Node root, int temps) {
+        return temps == 0 ? root::evaluate : vars -> root.evaluate(Arrays.copyOf(vars, vars.length + temps));
+    }
+
+    /**
+     * Emits the class file for a single expression.
+     */
+    private static final class Generator {
+        final ConstantPool pool = new ConstantPool();
+        final Code code = new Code();
+        final List<CalcFunction> functions = new ArrayList<>();
+        final List<String> fieldTypes = new ArrayList<>();
+        final Map<CalcFunction, Integer> fieldIndex = new IdentityHashMap<>();
+        // Temporary slots live in JVM locals after this and the argument array
+        final Map<Integer, Integer> locals = new HashMap<>();
+        int maxLocals = 2;
+
+        void emit(Node node) {
+            switch (node) {
+                case Node.Num n -> code.constant(pool, n.value());
+                case Node.Var v -> {
+                    code.op(0x2b, 1); // aload_1
+                    code.intConstant(v.slot());
+                    code.op(0x31, 0); // daload
+                }
+                case Node.Neg n -> {
+                    emit(n.operand());
+                    code.op(0x77, 0); // dneg
+                }
+                case Node.Add n -> binary(n.left(), n.right(), 0x63); // dadd
+                case Node.Sub n -> binary(n.left(), n.right(), 0x67); // dsub
+                case Node.Mul n -> binary(n.left(), n.right(), 0x6b); // dmul
+                case Node.Div n -> binary(n.left(), n.right(), 0x6f); // ddiv
+                case Node.Call c -> call(c);
+                case Node.Store s -> {
+                    emit(s.value());
+                    int local = maxLocals;
+                    maxLocals += 2;
+                    locals.put(s.slot(), local);
+                    code.op(0x5c, 2); // dup2
+                    code.local(0x39, -2, local); // dstore
+                }
+                case Node.Load l -> code.local(0x18, 2, locals.get(l.slot())); // dload
+            }
+        }
+
+        private void binary(Node left, Node right, int opcode) {
+            emit(left);
+            emit(right);
+            code.op(opcode, -2);
+        }
+
+        private void call(Node.Call c) {
+            int field = field(c.function());
+            String type = fieldTypes.get(field);
+
+            code.op(0x2a, 1); // aload_0
+            code.op(0xb4, 0); // getfield
+            code.u2(pool.member(ConstantPool.FIELDREF, CLASS_NAME, "f" + field, "L" + type + ";"));
+
+            int shape = c.shape();
+            if (shape != Node.Call.VARARGS && type.equals(CALC_FUNCTION)) {
+                code.op(0xc0, 0); // checkcast to the fixed-arity interface
+                code.u2(pool.classRef(FIXED_ARITY[shape]));
+            }
+            String descriptor;
+            String owner;
+            if (shape == Node.Call.VARARGS) {
+                code.intConstant(c.args().size());
+                code.op(0xbc, 0); // newarray double
+                code.u1(7);
+                for (int i = 0; i < c.args().size(); i++) {
+                    code.op(0x59, 1); // dup
+                    code.intConstant(i);
+                    emit(c.args().get(i));
+                    code.op(0x52, -4); // dastore
+                }
+                descriptor = "([D)D";
+                owner = CALC_FUNCTION;
+            } else {
+                // Fixed arity: arguments stay on the operand stack, no array
+                for (Node arg : c.args()) {
+                    emit(arg);
+                }
+                descriptor = "(" + "D".repeat(shape) + ")D";
+                owner = FIXED_ARITY[shape];
+            }
+
+            // Pops the receiver and arguments, pushes the double result
+            int argSlots = shape == Node.Call.VARARGS ? 1 : 2 * shape;
+            if (type.equals(CALC_FUNCTION)) {
+                code.op(0xb9, 1 - argSlots); // invokeinterface
+                code.u2(pool.member(ConstantPool.INTERFACE_METHODREF, owner, "execute", descriptor));
+                code.u1(1 + argSlots);
+                code.u1(0);
+            } else {
+                code.op(0xb6, 1 - argSlots); // invokevirtual
+                code.u2(pool.member(ConstantPool.METHODREF, type, "execute", descriptor));
+            }
+        }
+
+        private int field(CalcFunction f) {
+            Integer index = fieldIndex.get(f);
+            if (index == null) {
+                index = functions.size();
+                functions.add(f);
+                fieldTypes.add(directType(f.getClass()));
+                fieldIndex.put(f, index);
+            }
+            return index;
+        }
+
+        /**
+         * Uses the concrete class for direct dispatch when the generated class
+         * can legally link against it, and the interface otherwise.
+         */
+        private static String directType(Class<?> cls) {
+            if (!Modifier.isPublic(cls.getModifiers()) || cls.isHidden()) {
+                return CALC_FUNCTION;
+            }
+            try {
+                MethodHandles.lookup().accessClass(cls);
+                Class<?> visible = Class.forName(cls.getName(), false, ExpressionCompiler.class.getClassLoader());
+                return visible == cls ? cls.getName().replace('.', '/') : CALC_FUNCTION;
+            } catch (ReflectiveOperationException | LinkageError e) {
+                return CALC_FUNCTION;
+            }
+        }
+
+        byte[] toClassFile() throws IOException {
+            int thisClass = pool.classRef(CLASS_NAME);
+            int superClass = pool.classRef("java/lang/Object");
+            int iface = pool.classRef("com/modulo/engine/CompiledExpression");
+
+            // Constructor: store each function into its typed final field
+            Code init = new Code();
+            init.op(0x2a, 1); // aload_0
+            init.op(0xb7, -1); // invokespecial Object.<init>
+            init.u2(pool.member(ConstantPool.METHODREF, "java/lang/Object", "<init>", "()V"));
+            for (int i = 0; i < functions.size(); i++) {
+                String type = fieldTypes.get(i);
+                init.op(0x2a, 1); // aload_0
+                init.op(0x2b, 1); // aload_1
+                init.intConstant(i);
+                init.op(0x32, -1); // aaload
+                init.op(0xc0, 0); // checkcast
+                init.u2(pool.classRef(type));
+                init.op(0xb5, -2); // putfield
+                init.u2(pool.member(ConstantPool.FIELDREF, CLASS_NAME, "f" + i, "L" + type + ";"));
+            }
+            init.op(0xb1, 0); // return
+
+            code.op(0xaf, -2); // dreturn
+
+            int codeAttr = pool.utf8("Code");
+            int initName = pool.utf8("<init>");
+            int initDesc = pool.utf8("([Ljava/lang/Object;)V");
+            int runName = pool.utf8("evaluate");
+            int runDesc = pool.utf8("([D)D");
+            int[] fieldNames = new int[functions.size()];
+            int[] fieldDescs = new int[functions.size()];
+            for (int i = 0; i < functions.size(); i++) {
+                fieldNames[i] = pool.utf8("f" + i);
+                fieldDescs[i] = pool.utf8("L" + fieldTypes.get(i) + ";");
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + code.size());
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(61); // Java 17 class file; straight-line code needs no stack maps
+            pool.writeTo(out);
+            out.writeShort(0x0010 | 0x0020); // ACC_FINAL | ACC_SUPER
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(iface);
+
+            out.writeShort(functions.size());
+            for (int i = 0; i < functions.size(); i++) {
+                out.writeShort(0x0002 | 0x0010); // ACC_PRIVATE | ACC_FINAL
+                out.writeShort(fieldNames[i]);
+                out.writeShort(fieldDescs[i]);
+                out.writeShort(0);
+            }
+
+            out.writeShort(2);
+            writeMethod(out, 0x0001, initName, initDesc, codeAttr, init, 2);
+            writeMethod(out, 0x0001, runName, runDesc, codeAttr, code, maxLocals);
+            out.writeShort(0);
+            return bytes.toByteArray();
+        }
+
+        private static void writeMethod(DataOutputStream out, int access, int name, int desc, int codeAttr,
+                Code body, int maxLocals) throws IOException {
+            out.writeShort(access);
+            out.writeShort(name);
+            out.writeShort(desc);
+            out.writeShort(1);
+            out.writeShort(codeAttr);
+            out.writeInt(12 + body.size());
+            out.writeShort(body.maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(body.size());
+            body.writeTo(out);
+            out.writeShort(0); // exception table
+            out.writeShort(0); // attributes
+        }
+    }
+
+    /**
+     * Bytecode buffer that tracks the operand stack depth as it is written.
+     */
+    private static final class Code extends ByteArrayOutputStream {
+        int stack;
+        int maxStack;
+
+        void op(int opcode, int stackDelta) {
+            write(opcode);
+            stack += stackDelta;
+            maxStack = Math.max(maxStack, stack);
+        }
+
+        void u1(int value) {
+            write(value);
+        }
+
+        void u2(int value) {
+            write(value >>> 8);
+            write(value);
+        }
+
+        void local(int opcode, int stackDelta, int index) {
+            if (index <= 0xFF) {
+                op(opcode, stackDelta);
+                u1(index);
+            } else {
+                op(0xc4, 0); // wide
+                op(opcode, stackDelta);
+                u2(index);
+            }
+        }
+
+        void intConstant(int value) {
+            if (value <= 5) {
+                op(0x03 + value, 1); // iconst_n
+            } else if (value <= Byte.MAX_VALUE) {
+                op(0x10, 1); // bipush
+                u1(value);
+            } else {
+                op(0x11, 1); // sipush
+                u2(value);
+            }
+        }
+
+        void constant(ConstantPool pool, double value) {
+            long bits = Double.doubleToRawLongBits(value);
+            if (bits == 0L) {
+                op(0x0e, 2); // dconst_0
+            } else if (bits == Double.doubleToRawLongBits(1.0)) {
+                op(0x0f, 2); // dconst_1
+            } else {
+                op(0x14, 2); // ldc2_w
+                u2(pool.doubleConstant(value));
+            }
+        }
+    }
+
+    /**
+     * Minimal class file constant pool with de-duplication.
+     */
+    private static final class ConstantPool {
+        static final int FIELDREF = 9;
+        static final int METHODREF = 10;
+        static final int INTERFACE_METHODREF = 11;
+
+        private final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(buf);
+        private final Map<String, Integer> entries = new HashMap<>();
+        private int count = 1;
+
+        int utf8(String s) {
+            return entry("U" + s, 1, o -> o.writeUTF(s));
+        }
+
+        int classRef(String internalName) {
+            int name = utf8(internalName);
+            return entry("C" + internalName, 7, o -> o.writeShort(name));
+        }
+
+        int member(int tag, String owner, String name, String descriptor) {
+            int cls = classRef(owner);
+            int n = utf8(name);
+            int d = utf8(descriptor);
+            int nameAndType = entry("N" + name + ":" + descriptor, 12, o -> {
+                o.writeShort(n);
+                o.writeShort(d);
+            });
+            return entry("M" + tag + owner + "." + name + descriptor, tag, o -> {
+                o.writeShort(cls);
+                o.writeShort(nameAndType);
+            });
+        }
+
+        int doubleConstant(double value) {
+            long bits = Double.doubleToRawLongBits(value);
+            Integer existing = entries.get("D" + bits);
+            if (existing != null) {
+                return existing;
+            }
+            int index = entry("D" + bits, 6, o -> o.writeLong(bits));
+            count++; // doubles take two constant pool slots
+            return index;
+        }
+
+        private int entry(String key, int tag, Body body) {
+            Integer existing = entries.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            try {
+                out.writeByte(tag);
+                body.write(out);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            int index = count++;
+            entries.put(key, index);
+            return index;
+        }
+
+        void writeTo(DataOutputStream dest) throws IOException {
+            dest.writeShort(count);
+            buf.writeTo(dest);
+        }
+
+        private interface Body {
+            void write(DataOutputStream out) throws IOException;
+        }
+    }
+}
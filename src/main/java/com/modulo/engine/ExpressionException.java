@@ -0,0 +1,57 @@
+package com.modulo.engine;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+/**
+ * Thrown when an expression cannot be parsed or evaluated.
+ * <p>
+ * The position points at the offending character of the source text, or is
+ * {@code -1} when the error is not tied to a particular location.
+ * </p>
+ */
+public class ExpressionException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int position;
+
+    /**
+     * Constructs a new {@code ExpressionException}.
+     *
+     * @param message  The error message.
+     * @param position The offset in the source text, or {@code -1}.
+     */
+    public ExpressionException(String message, int position) {
+        super(message);
+        this.position = position;
+    }
+
+    /**
+     * Gets the offset in the source text where the error was detected.
+     *
+     * @return The offset, or {@code -1} if unknown.
+     */
+    public int getPosition() {
+        return position;
+    }
+}
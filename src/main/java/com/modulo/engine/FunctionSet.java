@@ -0,0 +1,147 @@
+package com.modulo.engine;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import com.modulo.internal.CalcFunction;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable set of calculator functions with a name index.
+ * <p>
+ * A {@code FunctionSet} is a snapshot: later changes to the collection it was
+ * built from are not visible, so it can be shared freely between threads.
+ * </p>
+ * <p>
+ * Besides the exact-name lookup, each set carries a trie over the function
+ * names that the {@link Lexer} uses to recognize calls by longest match, in
+ * time proportional to the name length rather than the number of functions.
+ * </p>
+ */
+public final class FunctionSet {
+
+    private static final FunctionSet EMPTY = new FunctionSet(List.of(), Map.of(), 0);
+
+    private final List<CalcFunction> functions;
+    private final Map<String, CalcFunction> byName;
+    private final NameIndex index;
+    private final long version;
+
+    private FunctionSet(List<CalcFunction> functions, Map<String, CalcFunction> byName, long version) {
+        this.functions = functions;
+        this.byName = byName;
+        this.index = NameIndex.build(byName);
+        this.version = version;
+    }
+
+    /**
+     * Creates a snapshot of the given functions.
+     *
+     * @param functions The functions, in display order. If two share a name,
+     *                  the first one wins.
+     * @return The new function set, with version {@code 0}.
+     */
+    public static FunctionSet of(Collection<? extends CalcFunction> functions) {
+        return of(functions, 0);
+    }
+
+    /**
+     * Creates a versioned snapshot of the given functions.
+     *
+     * @param functions The functions, in display order. If two share a name,
+     *                  the first one wins.
+     * @param version   The version, which lets holders of a snapshot tell
+     *                  whether a newer one has been published.
+     * @return The new function set.
+     */
+    public static FunctionSet of(Collection<? extends CalcFunction> functions, long version) {
+        List<CalcFunction> list = new ArrayList<>(functions.size());
+        Map<String, CalcFunction> byName = new HashMap<>();
+        for (CalcFunction f : functions) {
+            if (byName.putIfAbsent(f.getName(), f) == null) {
+                list.add(f);
+            }
+        }
+        return new FunctionSet(Collections.unmodifiableList(list), Collections.unmodifiableMap(byName), version);
+    }
+
+    /**
+     * Gets an empty function set.
+     *
+     * @return A set without functions.
+     */
+    public static FunctionSet empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Looks up a function by name.
+     *
+     * @param name The function name.
+     * @return The function, or {@code null} if there is none with that name.
+     */
+    public CalcFunction get(String name) {
+        return byName.get(name);
+    }
+
+    /**
+     * Gets the trie over the function names.
+     *
+     * @return The name index.
+     */
+    NameIndex index() {
+        return index;
+    }
+
+    /**
+     * Gets all functions in display order.
+     *
+     * @return An unmodifiable list of functions.
+     */
+    public List<CalcFunction> getFunctions() {
+        return functions;
+    }
+
+    /**
+     * Gets the version this snapshot was published with.
+     *
+     * @return The version; {@code 0} for sets not published by a registry.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Counts the functions in this set.
+     *
+     * @return The number of functions.
+     */
+    public int size() {
+        return functions.size();
+    }
+}
@@ -0,0 +1,174 @@
+package com.modulo.engine;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import com.modulo.internal.CalcFunction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits an expression string into {@link Token}s in a single left-to-right
+ * pass.
+ * <p>
+ * Whitespace separates tokens and is otherwise ignored. Numbers accept an
+ * optional fraction and exponent, e.g. {@code 1.2E-3}.
+ * </p>
+ * <p>
+ * Where an operand is expected, the longest function name from the
+ * {@link FunctionSet}'s {@link NameIndex} that is followed by {@code (} is
+ * read as a single {@link Token.Type#FUNCTION} token. Names therefore need
+ * not be identifiers, so a function called {@code *3} can be written as
+ * {@code *3(4)}.
+ * </p>
+ */
+final class Lexer {
+
+    private Lexer() {
+    }
+
+    /**
+     * Tokenizes the given source text.
+     *
+     * @param source    The expression text.
+     * @param functions The functions whose names are recognized.
+     * @return The tokens, always terminated by a {@link Token.Type#END} token.
+     * @throws ExpressionException If an unexpected character is found.
+     */
+    static List<Token> tokenize(String source, FunctionSet functions) {
+        List<Token> tokens = new ArrayList<>();
+        NameIndex names = functions.index();
+        int len = source.length();
+        int i = 0;
+
+        while (i < len) {
+            char c = source.charAt(i);
+
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+
+            if (expectsOperand(tokens)) {
+                CalcFunction f = names.match(source, i);
+                if (f != null) {
+                    int end = i + f.getName().length();
+                    tokens.add(new Token(Token.Type.FUNCTION, i, end, 0, f));
+                    i = end;
+                    continue;
+                }
+            }
+
+            if (isDigit(c) || c == '.') {
+                int end = scanNumber(source, i);
+                tokens.add(new Token(Token.Type.NUMBER, i, end, parseNumber(source, i, end)));
+                i = end;
+                continue;
+            }
+
+            if (isIdentifierStart(c)) {
+                int end = i + 1;
+                while (end < len && isIdentifierPart(source.charAt(end))) {
+                    end++;
+                }
+                tokens.add(new Token(Token.Type.IDENTIFIER, i, end, 0));
+                i = end;
+                continue;
+            }
+
+            Token.Type type = switch (c) {
+                case '+' -> Token.Type.PLUS;
+                case '-' -> Token.Type.MINUS;
+                case '*' -> Token.Type.STAR;
+                case '/' -> Token.Type.SLASH;
+                case '(' -> Token.Type.LPAREN;
+                case ')' -> Token.Type.RPAREN;
+                case ',' -> Token.Type.COMMA;
+                default -> throw new ExpressionException("Unexpected character '" + c + "'", i);
+            };
+            tokens.add(new Token(type, i, i + 1, 0));
+            i++;
+        }
+
+        tokens.add(new Token(Token.Type.END, len, len, 0));
+        return tokens;
+    }
+
+    private static boolean expectsOperand(List<Token> tokens) {
+        if (tokens.isEmpty()) {
+            return true;
+        }
+        return switch (tokens.get(tokens.size() - 1).type()) {
+            case NUMBER, IDENTIFIER, RPAREN -> false;
+            default -> true;
+        };
+    }
+
+    private static int scanNumber(String s, int start) {
+        int len = s.length();
+        int i = start;
+        while (i < len && isDigit(s.charAt(i))) {
+            i++;
+        }
+        if (i < len && s.charAt(i) == '.') {
+            i++;
+            while (i < len && isDigit(s.charAt(i))) {
+                i++;
+            }
+        }
+        // Scientific notation (e.g. 1.2E-3); only consume the exponent if digits follow
+        if (i < len && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+            int j = i + 1;
+            if (j < len && (s.charAt(j) == '+' || s.charAt(j) == '-')) {
+                j++;
+            }
+            if (j < len && isDigit(s.charAt(j))) {
+                while (j < len && isDigit(s.charAt(j))) {
+                    j++;
+                }
+                i = j;
+            }
+        }
+        return i;
+    }
+
+    private static double parseNumber(String s, int start, int end) {
+        try {
+            return Double.parseDouble(s.substring(start, end));
+        } catch (NumberFormatException e) {
+            throw new ExpressionException("Invalid number: " + s.substring(start, end), start);
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return Character.isLetter(c) || c == '_';
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+}
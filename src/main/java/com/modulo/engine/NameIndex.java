@@ -0,0 +1,140 @@
+package com.modulo.engine;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import com.modulo.internal.CalcFunction;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Character trie over function names, used by the {@link Lexer} to find the
+ * function a call starts with.
+ * <p>
+ * Each node keeps its outgoing edges in a sorted {@code char} array, so a
+ * lookup costs one binary search per character of the name and does not
+ * depend on how many functions are indexed. The trie is built once per
+ * {@link FunctionSet} and is immutable afterwards.
+ * </p>
+ */
+final class NameIndex {
+
+    private static final char[] NO_KEYS = new char[0];
+    private static final NameIndex[] NO_CHILDREN = new NameIndex[0];
+
+    private final char[] keys;
+    private final NameIndex[] children;
+    private final CalcFunction function;
+
+    private NameIndex(char[] keys, NameIndex[] children, CalcFunction function) {
+        this.keys = keys;
+        this.children = children;
+        this.function = function;
+    }
+
+    /**
+     * Builds an index over the given functions, keyed by
+     * {@link CalcFunction#getName()}.
+     *
+     * @param byName The functions by name.
+     * @return The index.
+     */
+    static NameIndex build(Map<String, CalcFunction> byName) {
+        Builder root = new Builder();
+        for (Map.Entry<String, CalcFunction> e : byName.entrySet()) {
+            String name = e.getKey();
+            if (name.isEmpty()) {
+                continue;
+            }
+            Builder node = root;
+            for (int i = 0; i < name.length(); i++) {
+                node = node.children.computeIfAbsent(name.charAt(i), c -> new Builder());
+            }
+            node.function = e.getValue();
+        }
+        return root.freeze();
+    }
+
+    /**
+     * Finds the longest function name that starts at {@code from} and is
+     * followed by an opening parenthesis, optionally after whitespace.
+     * <p>
+     * Requiring the parenthesis means a shorter name is never matched inside
+     * a longer identifier: with only {@code sin} registered, {@code sint(}
+     * does not match, and with both {@code sin} and {@code sinh} registered,
+     * {@code sinh(} resolves to {@code sinh}.
+     * </p>
+     *
+     * @param source The expression text.
+     * @param from   The offset to match at.
+     * @return The function, or {@code null} if no name matches.
+     */
+    CalcFunction match(String source, int from) {
+        int len = source.length();
+        NameIndex node = this;
+        CalcFunction best = null;
+        for (int i = from; i < len; i++) {
+            int k = Arrays.binarySearch(node.keys, source.charAt(i));
+            if (k < 0) {
+                break;
+            }
+            node = node.children[k];
+            if (node.function != null && isCallAt(source, i + 1)) {
+                best = node.function;
+            }
+        }
+        return best;
+    }
+
+    private static boolean isCallAt(String source, int i) {
+        int len = source.length();
+        while (i < len && Character.isWhitespace(source.charAt(i))) {
+            i++;
+        }
+        return i < len && source.charAt(i) == '(';
+    }
+
+    /**
+     * Mutable trie node used while building the index.
+     */
+    private static final class Builder {
+        final Map<Character, Builder> children = new TreeMap<>();
+        CalcFunction function;
+
+        NameIndex freeze() {
+            if (children.isEmpty()) {
+                return new NameIndex(NO_KEYS, NO_CHILDREN, function);
+            }
+            char[] keys = new char[children.size()];
+            NameIndex[] nodes = new NameIndex[children.size()];
+            int i = 0;
+            for (Map.Entry<Character, Builder> e : children.entrySet()) {
+                keys[i] = e.getKey();
+                nodes[i] = e.getValue().freeze();
+                i++;
+            }
+            return new NameIndex(keys, nodes, function);
+        }
+    }
+}
@@ -0,0 +1,464 @@
+package com.modulo.engine;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import com.modulo.internal.ArrayFunction;
+import com.modulo.internal.BinaryFunction;
+import com.modulo.internal.CalcFunction;
+import com.modulo.internal.NullaryFunction;
+import com.modulo.internal.TernaryFunction;
+import com.modulo.internal.UnaryFunction;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A node of an immutable expression tree built by the {@link Parser}.
+ * <p>
+ * Nodes are plain values: they hold no evaluation state, so a tree can be
+ * evaluated any number of times, from any thread. Every node can be evaluated
+ * either for a single set of variable values or column-wise over a chunk of
+ * rows, see {@link Expression#evaluate(double[][], double[])}.
+ * </p>
+ */
+sealed interface Node {
+
+    /**
+     * Evaluates this node and its children.
+     *
+     * @param vars The variable values, indexed by slot.
+     * @return The value of the subtree.
+     */
+    double evaluate(double[] vars);
+
+    /**
+     * Evaluates this node for a chunk of rows.
+     *
+     * @param columns The variable columns, indexed by slot.
+     * @param offset  The first row of the chunk.
+     * @param length  The number of rows in the chunk.
+     * @param out     Receives the results in {@code out[0..length)}.
+     * @param buffers Scratch space for intermediate results.
+     */
+    void evaluate(double[][] columns, int offset, int length, double[] out, BatchBuffers buffers);
+
+    /**
+     * Counts the nodes of this subtree, including this one.
+     *
+     * @return The node count.
+     */
+    int size();
+
+    /**
+     * Appends the canonical, fully parenthesized text of this subtree.
+     *
+     * @param sb The builder to append to.
+     */
+    void appendTo(StringBuilder sb);
+
+    /**
+     * A numeric literal.
+     *
+     * @param value The value.
+     * @param text  The literal as written, which the decimal modes read
+     *              exactly; {@code null} for constants the optimizer computed.
+     */
+    record Num(double value, String text) implements Node {
+        Num(double value) {
+            this(value, null);
+        }
+
+        public double evaluate(double[] vars) {
+            return value;
+        }
+
+        public void evaluate(double[][] columns, int offset, int length, double[] out, BatchBuffers buffers) {
+            Arrays.fill(out, 0, length, value);
+        }
+
+        public int size() {
+            return 1;
+        }
+
+        public void appendTo(StringBuilder sb) {
+            sb.append(value);
+        }
+    }
+
+    /** A reference to a free variable, resolved to its slot at parse time. */
+    record Var(String name, int slot) implements Node {
+        public double evaluate(double[] vars) {
+            return vars[slot];
+        }
+
+        public void evaluate(double[][] columns, int offset, int length, double[] out, BatchBuffers buffers) {
+            System.arraycopy(columns[slot], offset, out, 0, length);
+        }
+
+        public int size() {
+            return 1;
+        }
+
+        public void appendTo(StringBuilder sb) {
+            sb.append(name);
+        }
+    }
+
+    /** Unary minus. */
+    record Neg(Node operand) implements Node {
+        public double evaluate(double[] vars) {
+            return -operand.evaluate(vars);
+        }
+
+        public void evaluate(double[][] columns, int offset, int length, double[] out, BatchBuffers buffers) {
+            operand.evaluate(columns, offset, length, out, buffers);
+            for (int i = 0; i < length; i++) {
+                out[i] = -out[i];
+            }
+        }
+
+        public int size() {
+            return 1 + operand.size();
+        }
+
+        public void appendTo(StringBuilder sb) {
+            sb.append("(-");
+            operand.appendTo(sb);
+            sb.append(')');
+        }
+    }
+
+    /** Addition. */
+    record Add(Node left, Node right) implements Node {
+        public double evaluate(double[] vars) {
+            return left.evaluate(vars) + right.evaluate(vars);
+        }
+
+        public void evaluate(double[][] columns, int offset, int length, double[] out, BatchBuffers buffers) {
+            left.evaluate(columns, offset, length, out, buffers);
+            double[] r = buffers.take();
+            right.evaluate(columns, offset, length, r, buffers);
+            for (int i = 0; i < length; i++) {
+                out[i] += r[i];
+            }
+            buffers.release(r);
+        }
+
+        public int size() {
+            return 1 + left.size() + right.size();
+        }
+
+        public void appendTo(StringBuilder sb) {
+            sb.append('(');
+            left.appendTo(sb);
+            sb.append('+');
+            right.appendTo(sb);
+            sb.append(')');
+        }
+    }
+
+    /** Subtraction. */
+    record Sub(Node left, Node right) implements Node {
+        public double evaluate(double[] vars) {
+            return left.evaluate(vars) - right.evaluate(vars);
+        }
+
+        public void evaluate(double[][] columns, int offset, int length, double[] out, BatchBuffers buffers) {
+            left.evaluate(columns, offset, length, out, buffers);
+            double[] r = buffers.take();
+            right.evaluate(columns, offset, length, r, buffers);
+            for (int i = 0; i < length; i++) {
+                out[i] -= r[i];
+            }
+            buffers.release(r);
+        }
+
+        public int size() {
+            return 1 + left.size() + right.size();
+        }
+
+        public void appendTo(StringBuilder sb) {
+            sb.append('(');
+            left.appendTo(sb);
+            sb.append('-');
+            right.appendTo(sb);
+            sb.append(')');
+        }
+    }
+
+    /** Multiplication. */
+    record Mul(Node left, Node right) implements Node {
+        public double evaluate(double[] vars) {
+            return left.evaluate(vars) * right.evaluate(vars);
+        }
+
+        public void evaluate(double[][] columns, int offset, int length, double[] out, BatchBuffers buffers) {
+            left.evaluate(columns, offset, length, out, buffers);
+            double[] r = buffers.take();
+            right.evaluate(columns, offset, length, r, buffers);
+            for (int i = 0; i < length; i++) {
+                out[i] *= r[i];
+            }
+            buffers.release(r);
+        }
+
+        public int size() {
+            return 1 + left.size() + right.size();
+        }
+
+        public void appendTo(StringBuilder sb) {
+            sb.append('(');
+            left.appendTo(sb);
+            sb.append('*');
+            right.appendTo(sb);
+            sb.append(')');
+        }
+    }
+
+    /** Division. */
+    record Div(Node left, Node right) implements Node {
+        public double evaluate(double[] vars) {
+            return left.evaluate(vars) / right.evaluate(vars);
+        }
+
+        public void evaluate(double[][] columns, int offset, int length, double[] out, BatchBuffers buffers) {
+            left.evaluate(columns, offset, length, out, buffers);
+            double[] r = buffers.take();
+            right.evaluate(columns, offset, length, r, buffers);
+            for (int i = 0; i < length; i++) {
+                out[i] /= r[i];
+            }
+            buffers.release(r);
+        }
+
+        public int size() {
+            return 1 + left.size() + right.size();
+        }
+
+        public void appendTo(StringBuilder sb) {
+            sb.append('(');
+            left.appendTo(sb);
+            sb.append('/');
+            right.appendTo(sb);
+            sb.append(')');
+        }
+    }
+
+    /**
+     * Computes a subexpression that occurs more than once and keeps its value
+     * in a temporary slot for the {@link Load}s that follow it in evaluation
+     * order. Created by the {@link Optimizer}.
+     * <p>
+     * Temporary slots come after the variable slots. In column-wise evaluation
+     * their columns hold only the current chunk, indexed from {@code 0}.
+     * </p>
+     */
+    record Store(int slot, Node value) implements Node {
+        public double evaluate(double[] vars) {
+            return vars[slot] = value.evaluate(vars);
+        }
+
+        public void evaluate(double[][] columns, int offset, int length, double[] out, BatchBuffers buffers) {
+            value.evaluate(columns, offset, length, out, buffers);
+            System.arraycopy(out, 0, columns[slot], 0, length);
+        }
+
+        public int size() {
+            return 1 + value.size();
+        }
+
+        public void appendTo(StringBuilder sb) {
+            value.appendTo(sb);
+        }
+    }
+
+    /**
+     * Reads a value computed by an earlier {@link Store} to the same slot.
+     * Keeps the shared subexpression only to print it.
+     */
+    record Load(int slot, Node value) implements Node {
+        public double evaluate(double[] vars) {
+            return vars[slot];
+        }
+
+        public void evaluate(double[][] columns, int offset, int length, double[] out, BatchBuffers buffers) {
+            System.arraycopy(columns[slot], 0, out, 0, length);
+        }
+
+        public int size() {
+            return 1;
+        }
+
+        public void appendTo(StringBuilder sb) {
+            value.appendTo(sb);
+        }
+    }
+
+    /**
+     * A call to a registered {@link CalcFunction}.
+     * <p>
+     * The calling convention is chosen once, at construction: functions that
+     * implement the fixed-arity interface matching the number of arguments are
+     * called directly, everything else through {@link CalcFunction#execute(double...)}.
+     * </p>
+     */
+    final class Call implements Node {
+        /** {@link #shape()} of calls that go through the varargs method. */
+        static final int VARARGS = -1;
+
+        private final CalcFunction function;
+        private final List<Node> args;
+        private final int shape;
+        private final Node a0;
+        private final Node a1;
+        private final Node a2;
+
+        Call(CalcFunction function, List<Node> args) {
+            this.function = function;
+            this.args = args;
+            this.shape = shapeOf(function, args.size());
+            this.a0 = args.size() > 0 ? args.get(0) : null;
+            this.a1 = args.size() > 1 ? args.get(1) : null;
+            this.a2 = args.size() > 2 ? args.get(2) : null;
+        }
+
+        /**
+         * Determines how a function is called with the given number of
+         * arguments.
+         *
+         * @param f    The function.
+         * @param argc The number of arguments.
+         * @return The arity of the specialized interface to use, or
+         *         {@link #VARARGS}.
+         */
+        static int shapeOf(CalcFunction f, int argc) {
+            if (f.getArgCount() != argc) {
+                return VARARGS;
+            }
+            return switch (argc) {
+                case 0 -> f instanceof NullaryFunction ? 0 : VARARGS;
+                case 1 -> f instanceof UnaryFunction ? 1 : VARARGS;
+                case 2 -> f instanceof BinaryFunction ? 2 : VARARGS;
+                case 3 -> f instanceof TernaryFunction ? 3 : VARARGS;
+                default -> VARARGS;
+            };
+        }
+
+        CalcFunction function() {
+            return function;
+        }
+
+        List<Node> args() {
+            return args;
+        }
+
+        int shape() {
+            return shape;
+        }
+
+        public double evaluate(double[] vars) {
+            return switch (shape) {
+                case 0 -> ((NullaryFunction) function).execute();
+                case 1 -> ((UnaryFunction) function).execute(a0.evaluate(vars));
+                case 2 -> ((BinaryFunction) function).execute(a0.evaluate(vars), a1.evaluate(vars));
+                case 3 -> ((TernaryFunction) function).execute(a0.evaluate(vars), a1.evaluate(vars),
+                        a2.evaluate(vars));
+                default -> {
+                    double[] values = new double[args.size()];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = args.get(i).evaluate(vars);
+                    }
+                    yield function.execute(values);
+                }
+            };
+        }
+
+        public void evaluate(double[][] columns, int offset, int length, double[] out, BatchBuffers buffers) {
+            int arity = args.size();
+            double[][] argColumns = buffers.argColumns(arity);
+            for (int k = 0; k < arity; k++) {
+                argColumns[k] = buffers.take();
+                args.get(k).evaluate(columns, offset, length, argColumns[k], buffers);
+            }
+
+            if (function instanceof ArrayFunction array) {
+                array.executeArray(argColumns, out, length);
+            } else if (shape == 1) {
+                UnaryFunction f = (UnaryFunction) function;
+                double[] x = argColumns[0];
+                for (int i = 0; i < length; i++) {
+                    out[i] = f.execute(x[i]);
+                }
+            } else if (shape == 2) {
+                BinaryFunction f = (BinaryFunction) function;
+                double[] x = argColumns[0];
+                double[] y = argColumns[1];
+                for (int i = 0; i < length; i++) {
+                    out[i] = f.execute(x[i], y[i]);
+                }
+            } else {
+                // One reused argument row for the whole chunk
+                double[] row = buffers.row(arity);
+                for (int i = 0; i < length; i++) {
+                    for (int k = 0; k < arity; k++) {
+                        row[k] = argColumns[k][i];
+                    }
+                    out[i] = function.execute(row);
+                }
+            }
+
+            for (int k = 0; k < arity; k++) {
+                buffers.release(argColumns[k]);
+            }
+            buffers.releaseArgColumns(argColumns);
+        }
+
+        public int size() {
+            int n = 1;
+            for (Node arg : args) {
+                n += arg.size();
+            }
+            return n;
+        }
+
+        public void appendTo(StringBuilder sb) {
+            sb.append(function.getName()).append('(');
+            for (int i = 0; i < args.size(); i++) {
+                if (i > 0)
+                    sb.append(',');
+                args.get(i).appendTo(sb);
+            }
+            sb.append(')');
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Call c && c.function == function && c.args.equals(args);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(function) + args.hashCode();
+        }
+    }
+}
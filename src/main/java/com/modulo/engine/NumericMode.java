@@ -0,0 +1,62 @@
+package com.modulo.engine;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+/**
+ * The arithmetic a {@link CalculatorEngine} evaluates expressions in.
+ */
+public enum NumericMode {
+    /**
+     * IEEE 754 {@code double}: the fastest, but decimal fractions are
+     * rounded to binary, so {@code 0.1+0.2} gives {@code 0.30000000000000004}.
+     */
+    DOUBLE,
+    /**
+     * {@code BigDecimal}, rounded to the engine's {@code MathContext}:
+     * decimal literals are exact, at many times the cost.
+     */
+    DECIMAL,
+    /**
+     * {@code double} with a running error bound, re-evaluated in decimal only
+     * when the bound cannot rule out a result different from
+     * {@link #DECIMAL}'s rounded to {@code double}.
+     */
+    HYBRID;
+
+    /**
+     * Looks up a mode by its name in the configuration.
+     *
+     * @param name {@code double}, {@code decimal} or {@code hybrid}, in
+     *             any case.
+     * @return The mode.
+     * @throws IllegalArgumentException If the name is unknown.
+     */
+    public static NumericMode parse(String name) {
+        for (NumericMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(name.trim())) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown numeric mode: " + name);
+    }
+}
@@ -0,0 +1,427 @@
+package com.modulo.engine;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import com.modulo.internal.CalcFunction;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rewrites parsed expression trees so they evaluate with less work.
+ * <p>
+ * The {@link Parser} runs three steps on every tree:
+ * </p>
+ * <ol>
+ * <li>Constant subtrees are folded, including calls of
+ * {@linkplain CalcFunction#isPure() pure} functions whose arguments are all
+ * constant. A call that throws is left in place, so the error is reported
+ * when the expression is evaluated.</li>
+ * <li>Algebraic simplifications are applied, but only those that give
+ * bit-identical results for every input, including NaN, infinities and signed
+ * zeros. {@code x*1}, {@code x-0}, {@code x*-1} and {@code -(-x)} are
+ * simplified; {@code x+0}, {@code x*0}, {@code x-x} and {@code x/x} are not,
+ * because they differ for {@code -0}, infinities or NaN. Division by a power
+ * of two becomes multiplication by its exact reciprocal.</li>
+ * <li>Identical subexpressions that contain no impure calls are computed once:
+ * the first occurrence in evaluation order becomes a {@link Node.Store} into a
+ * temporary slot and later ones become {@link Node.Load}s.</li>
+ * </ol>
+ * <p>
+ * An optimizer keeps running totals of what it did and is thread-safe.
+ * </p>
+ */
+public final class Optimizer {
+
+    private static final double[] NO_VARIABLES = new double[0];
+
+    private final LongAdder expressions = new LongAdder();
+    private final LongAdder originalNodes = new LongAdder();
+    private final LongAdder optimizedNodes = new LongAdder();
+    private final LongAdder foldedConstants = new LongAdder();
+    private final LongAdder simplifications = new LongAdder();
+    private final LongAdder sharedSubexpressions = new LongAdder();
+
+    /**
+     * What the optimizer did to one expression, or in total.
+     *
+     * @param expressions          The number of optimized expressions.
+     * @param originalNodes        Tree nodes before optimization.
+     * @param optimizedNodes       Tree nodes after optimization; a shared
+     *                             subexpression counts once.
+     * @param foldedConstants      Operations evaluated at parse time.
+     * @param simplifications      Algebraic rewrites applied.
+     * @param sharedSubexpressions Subexpressions computed once and reused.
+     */
+    public record Stats(long expressions, long originalNodes, long optimizedNodes, long foldedConstants,
+            long simplifications, long sharedSubexpressions) {
+
+        /**
+         * Gets the fraction of nodes removed by the optimizer.
+         *
+         * @return The reduction between 0 and 1, or 0 if nothing was
+         *         optimized.
+         */
+        public double nodeReduction() {
+            return originalNodes == 0 ? 0 : 1 - optimizedNodes / (double) originalNodes;
+        }
+    }
+
+    /**
+     * The outcome of optimizing one tree.
+     *
+     * @param root  The optimized tree.
+     * @param temps The number of temporary slots it uses after the variables.
+     * @param stats What was done.
+     */
+    record Result(Node root, int temps, Stats stats) {
+    }
+
+    Optimizer() {
+    }
+
+    /**
+     * Optimizes a tree.
+     *
+     * @param root      The tree built by the parser.
+     * @param variables The number of variable slots; temporaries are numbered
+     *                  from here.
+     * @return The optimized tree.
+     */
+    Result optimize(Node root, int variables) {
+        Pass pass = new Pass(variables);
+        Node simplified = pass.simplify(root);
+        pass.intern(simplified);
+        Node optimized = pass.share(simplified);
+
+        Stats stats = new Stats(1, root.size(), optimized.size(), pass.folded, pass.simplified, pass.temps);
+        expressions.increment();
+        originalNodes.add(stats.originalNodes());
+        optimizedNodes.add(stats.optimizedNodes());
+        foldedConstants.add(stats.foldedConstants());
+        simplifications.add(stats.simplifications());
+        sharedSubexpressions.add(stats.sharedSubexpressions());
+        return new Result(optimized, pass.temps, stats);
+    }
+
+    /**
+     * Gets the totals over all expressions optimized so far.
+     *
+     * @return The accumulated statistics.
+     */
+    public Stats getStats() {
+        return new Stats(expressions.sum(), originalNodes.sum(), optimizedNodes.sum(), foldedConstants.sum(),
+                simplifications.sum(), sharedSubexpressions.sum());
+    }
+
+    /**
+     * Structural identity of a node: its operation and the ids of its
+     * children.
+     */
+    private record Key(Object op, List<Integer> children) {
+    }
+
+    /**
+     * State of a single optimization.
+     */
+    private static final class Pass {
+        final int firstTemp;
+        int folded;
+        int simplified;
+        int temps;
+
+        // Hash-consing: structurally equal pure subtrees share one id
+        final Map<Key, Integer> ids = new HashMap<>();
+        final Map<Node, Integer> idOf = new IdentityHashMap<>();
+        final List<Boolean> pure = new ArrayList<>();
+        final List<Integer> uses = new ArrayList<>();
+        final Map<Integer, Integer> slots = new HashMap<>();
+
+        Pass(int firstTemp) {
+            this.firstTemp = firstTemp;
+        }
+
+        Node simplify(Node node) {
+            return switch (node) {
+                case Node.Num n -> n;
+                case Node.Var v -> v;
+                case Node.Neg n -> negate(simplify(n.operand()));
+                case Node.Add n -> add(simplify(n.left()), simplify(n.right()));
+                case Node.Sub n -> subtract(simplify(n.left()), simplify(n.right()));
+                case Node.Mul n -> multiply(simplify(n.left()), simplify(n.right()));
+                case Node.Div n -> divide(simplify(n.left()), simplify(n.right()));
+                case Node.Call c -> call(c);
+                case Node.Store s -> s;
+                case Node.Load l -> l;
+            };
+        }
+
+        private Node negate(Node x) {
+            if (x instanceof Node.Num n) {
+                return fold(-n.value());
+            }
+            if (x instanceof Node.Neg n) {
+                simplified++;
+                return n.operand();
+            }
+            return new Node.Neg(x);
+        }
+
+        private Node add(Node l, Node r) {
+            if (l instanceof Node.Num a && r instanceof Node.Num b) {
+                return fold(a.value() + b.value());
+            }
+            if (isConstant(r, -0.0)) {
+                simplified++;
+                return l;
+            }
+            if (isConstant(l, -0.0)) {
+                simplified++;
+                return r;
+            }
+            if (r instanceof Node.Neg n) {
+                simplified++;
+                return subtract(l, n.operand());
+            }
+            return new Node.Add(l, r);
+        }
+
+        private Node subtract(Node l, Node r) {
+            if (l instanceof Node.Num a && r instanceof Node.Num b) {
+                return fold(a.value() - b.value());
+            }
+            if (isConstant(r, 0.0)) {
+                simplified++;
+                return l;
+            }
+            if (r instanceof Node.Neg n) {
+                simplified++;
+                return add(l, n.operand());
+            }
+            return new Node.Sub(l, r);
+        }
+
+        private Node multiply(Node l, Node r) {
+            if (l instanceof Node.Num a && r instanceof Node.Num b) {
+                return fold(a.value() * b.value());
+            }
+            if (isConstant(r, 1.0)) {
+                simplified++;
+                return l;
+            }
+            if (isConstant(l, 1.0)) {
+                simplified++;
+                return r;
+            }
+            if (isConstant(r, -1.0)) {
+                simplified++;
+                return negate(l);
+            }
+            if (isConstant(l, -1.0)) {
+                simplified++;
+                return negate(r);
+            }
+            if (l instanceof Node.Neg a && r instanceof Node.Neg b) {
+                simplified++;
+                return multiply(a.operand(), b.operand());
+            }
+            return new Node.Mul(l, r);
+        }
+
+        private Node divide(Node l, Node r) {
+            if (l instanceof Node.Num a && r instanceof Node.Num b) {
+                return fold(a.value() / b.value());
+            }
+            if (isConstant(r, 1.0)) {
+                simplified++;
+                return l;
+            }
+            if (isConstant(r, -1.0)) {
+                simplified++;
+                return negate(l);
+            }
+            if (l instanceof Node.Neg a && r instanceof Node.Neg b) {
+                simplified++;
+                return divide(a.operand(), b.operand());
+            }
+            if (r instanceof Node.Num b && hasExactReciprocal(b.value())) {
+                simplified++;
+                return multiply(l, new Node.Num(1 / b.value()));
+            }
+            return new Node.Div(l, r);
+        }
+
+        private Node call(Node.Call c) {
+            List<Node> args = new ArrayList<>(c.args().size());
+            boolean changed = false;
+            boolean constant = true;
+            for (Node arg : c.args()) {
+                Node s = simplify(arg);
+                changed |= s != arg;
+                constant &= s instanceof Node.Num;
+                args.add(s);
+            }
+            Node.Call call = changed ? new Node.Call(c.function(), List.copyOf(args)) : c;
+            if (constant && call.function().isPure()) {
+                try {
+                    return fold(call.evaluate(NO_VARIABLES));
+                } catch (RuntimeException e) {
+                    // Keep the call so evaluation reports the error
+                }
+            }
+            return call;
+        }
+
+        private Node fold(double value) {
+            folded++;
+            return new Node.Num(value);
+        }
+
+        /**
+         * Tests for a literal with exactly the given bits, so {@code 0.0}
+         * and {@code -0.0} are told apart.
+         */
+        private static boolean isConstant(Node node, double value) {
+            return node instanceof Node.Num n
+                    && Double.doubleToRawLongBits(n.value()) == Double.doubleToRawLongBits(value);
+        }
+
+        /**
+         * Tests for a power of two whose reciprocal is a normal double, so
+         * {@code x / c == x * (1 / c)} for every {@code x}.
+         */
+        private static boolean hasExactReciprocal(double c) {
+            int exponent = Math.getExponent(c);
+            return (Double.doubleToRawLongBits(c) & 0x000F_FFFF_FFFF_FFFFL) == 0
+                    && exponent >= Double.MIN_EXPONENT && exponent < Double.MAX_EXPONENT;
+        }
+
+        /**
+         * Assigns ids bottom-up, giving structurally equal pure subtrees the
+         * same id, and counts how often each distinct subtree is used.
+         *
+         * @return The id of the node.
+         */
+        int intern(Node node) {
+            List<Integer> children = new ArrayList<>(2);
+            Object op;
+            boolean isPure = true;
+            switch (node) {
+                case Node.Num n -> op = Double.doubleToRawLongBits(n.value());
+                case Node.Var v -> op = v.slot();
+                case Node.Neg n -> {
+                    op = Node.Neg.class;
+                    children.add(intern(n.operand()));
+                }
+                case Node.Add n -> op = binary(Node.Add.class, n.left(), n.right(), children);
+                case Node.Sub n -> op = binary(Node.Sub.class, n.left(), n.right(), children);
+                case Node.Mul n -> op = binary(Node.Mul.class, n.left(), n.right(), children);
+                case Node.Div n -> op = binary(Node.Div.class, n.left(), n.right(), children);
+                case Node.Call c -> {
+                    op = c.function();
+                    isPure = c.function().isPure();
+                    for (Node arg : c.args()) {
+                        children.add(intern(arg));
+                    }
+                }
+                case Node.Store s -> op = s;
+                case Node.Load l -> op = l;
+            }
+            for (int child : children) {
+                isPure &= pure.get(child);
+            }
+
+            Key key = new Key(op, children);
+            Integer id = isPure ? ids.get(key) : null;
+            if (id == null) {
+                // Impure subtrees are never merged, so each gets its own id
+                id = pure.size();
+                pure.add(isPure);
+                uses.add(0);
+                if (isPure) {
+                    ids.put(key, id);
+                }
+                for (int child : children) {
+                    uses.set(child, uses.get(child) + 1);
+                }
+            }
+            idOf.put(node, id);
+            return id;
+        }
+
+        private Object binary(Class<?> op, Node left, Node right, List<Integer> children) {
+            children.add(intern(left));
+            children.add(intern(right));
+            return op;
+        }
+
+        /**
+         * Rebuilds the tree in evaluation order, storing each subexpression
+         * that is used more than once at its first occurrence and loading it
+         * at the others.
+         */
+        Node share(Node node) {
+            int id = idOf.get(node);
+            if (uses.get(id) < 2 || !isWorthSharing(node)) {
+                return rebuild(node);
+            }
+            Integer slot = slots.get(id);
+            if (slot != null) {
+                return new Node.Load(slot, node);
+            }
+            slot = firstTemp + temps++;
+            slots.put(id, slot);
+            return new Node.Store(slot, rebuild(node));
+        }
+
+        private static boolean isWorthSharing(Node node) {
+            return node instanceof Node.Add || node instanceof Node.Sub || node instanceof Node.Mul
+                    || node instanceof Node.Div || node instanceof Node.Call;
+        }
+
+        private Node rebuild(Node node) {
+            return switch (node) {
+                case Node.Num n -> n;
+                case Node.Var v -> v;
+                case Node.Neg n -> new Node.Neg(share(n.operand()));
+                case Node.Add n -> new Node.Add(share(n.left()), share(n.right()));
+                case Node.Sub n -> new Node.Sub(share(n.left()), share(n.right()));
+                case Node.Mul n -> new Node.Mul(share(n.left()), share(n.right()));
+                case Node.Div n -> new Node.Div(share(n.left()), share(n.right()));
+                case Node.Call c -> {
+                    List<Node> args = new ArrayList<>(c.args().size());
+                    for (Node arg : c.args()) {
+                        args.add(share(arg));
+                    }
+                    yield new Node.Call(c.function(), List.copyOf(args));
+                }
+                case Node.Store s -> s;
+                case Node.Load l -> l;
+            };
+        }
+    }
+}
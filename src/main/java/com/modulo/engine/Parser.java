@@ -0,0 +1,346 @@
+package com.modulo.engine;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import com.modulo.jfr.ParseEvent;
+import com.modulo.metrics.CallStats;
+import com.modulo.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Precedence-climbing parser that turns expression text into an
+ * {@link Expression}.
+ * <p>
+ * The source is tokenized once by the {@link Lexer} and consumed left to
+ * right, so parsing is linear in the length of the input. Grammar:
+ * </p>
+ *
+ * <pre>
+ * expression := unary (('+' | '-' | '*' | '/') unary)*   -- by precedence
+ * unary      := ('+' | '-') unary | primary
+ * primary    := NUMBER | variable | function '(' [expression (',' expression)*] ')' | '(' expression ')'
+ * </pre>
+ * <p>
+ * Function names are resolved by the lexer, so they may contain any
+ * characters; the longest registered name wins.
+ * </p>
+ * <p>
+ * Free variables must be declared up front and are bound to slots in
+ * declaration order, so evaluation never looks names up.
+ * </p>
+ * <p>
+ * Parsed trees are passed through the {@link Optimizer} unless optimization
+ * is turned off.
+ * </p>
+ * <p>
+ * Everything downstream of the parser walks trees recursively, so both the
+ * nesting of parentheses, signs and calls and the height of the resulting
+ * tree are limited to {@link #MAX_DEPTH}. Deeper expressions are rejected
+ * before they can exhaust the stack of the evaluating thread.
+ * </p>
+ * <p>
+ * A {@code Parser} only reads its immutable {@link FunctionSet}, so one
+ * instance can be shared between threads.
+ * </p>
+ */
+public final class Parser {
+
+    /**
+     * The maximum nesting depth and tree height of an expression; a chain of
+     * {@code n} binary operators makes a tree of height {@code n + 1}.
+     */
+    public static final int MAX_DEPTH = 256;
+
+    private final FunctionSet functions;
+    private final Optimizer optimizer;
+
+    /**
+     * Constructs an optimizing parser that resolves function calls against
+     * the given functions.
+     *
+     * @param functions The available functions.
+     */
+    public Parser(FunctionSet functions) {
+        this(functions, true);
+    }
+
+    /**
+     * Constructs a parser that resolves function calls against the given
+     * functions.
+     *
+     * @param functions The available functions.
+     * @param optimize  Whether to optimize the parsed trees.
+     */
+    public Parser(FunctionSet functions, boolean optimize) {
+        this.functions = functions;
+        this.optimizer = optimize ? new Optimizer() : null;
+    }
+
+    /**
+     * Parses the given expression.
+     *
+     * @param source    The expression text.
+     * @param variables The names of the free variables the expression may use,
+     *                  in slot order.
+     * @return The parsed, immutable expression.
+     * @throws ExpressionException If the text is not a valid expression.
+     */
+    public Expression parse(String source, String... variables) {
+        ParseEvent event = new ParseEvent();
+        event.begin();
+        CallStats stats = Metrics.isEnabled() ? Metrics.parse() : null;
+        long start = stats != null ? stats.start() : 0;
+        try {
+            Expression expression = parseTree(source, variables);
+            if (stats != null) {
+                stats.stop(start);
+            }
+            event.emit(source, expression.getNodeCount(), null);
+            return expression;
+        } catch (RuntimeException e) {
+            if (stats != null) {
+                stats.fail();
+            }
+            event.emit(source, 0, String.valueOf(e.getMessage()));
+            throw e;
+        }
+    }
+
+    private Expression parseTree(String source, String... variables) {
+        Map<String, Integer> slots = new HashMap<>();
+        for (int i = 0; i < variables.length; i++) {
+            if (slots.putIfAbsent(variables[i], i) != null) {
+                throw new IllegalArgumentException("Duplicate variable: " + variables[i]);
+            }
+        }
+        State state = new State(source, Lexer.tokenize(source, functions), slots);
+        if (state.peek().type() == Token.Type.END) {
+            throw new ExpressionException("Empty expression", 0);
+        }
+        Node root = parseExpression(state, 1);
+        Token trailing = state.peek();
+        if (trailing.type() != Token.Type.END) {
+            throw new ExpressionException("Unexpected '" + trailing.text(source) + "'", trailing.start());
+        }
+        if (optimizer == null) {
+            return new Expression(source, root, root, List.of(variables), 0, null);
+        }
+        Optimizer.Result optimized = optimizer.optimize(root, variables.length);
+        return new Expression(source, optimized.root(), root, List.of(variables), optimized.temps(),
+                optimized.stats());
+    }
+
+    /**
+     * Gets the functions that calls are resolved against.
+     *
+     * @return The function set.
+     */
+    FunctionSet getFunctions() {
+        return functions;
+    }
+
+    /**
+     * Gets the totals of what the optimizer did to the expressions parsed so
+     * far.
+     *
+     * @return The optimizer statistics; all zero if optimization is off.
+     */
+    public Optimizer.Stats getOptimizationStats() {
+        return optimizer != null ? optimizer.getStats() : new Optimizer.Stats(0, 0, 0, 0, 0, 0);
+    }
+
+    private Node parseExpression(State s, int minPrecedence) {
+        Node left = parseUnary(s);
+        int height = s.height;
+        while (true) {
+            Token token = s.peek();
+            Token.Type op = token.type();
+            int precedence = precedence(op);
+            if (precedence < minPrecedence) {
+                s.height = height;
+                return left;
+            }
+            s.next();
+            // All binary operators are left-associative
+            Node right = parseExpression(s, precedence + 1);
+            height = s.checkHeight(Math.max(height, s.height) + 1, token);
+            left = switch (op) {
+                case PLUS -> new Node.Add(left, right);
+                case MINUS -> new Node.Sub(left, right);
+                case STAR -> new Node.Mul(left, right);
+                case SLASH -> new Node.Div(left, right);
+                default -> throw new IllegalStateException(op.name());
+            };
+        }
+    }
+
+    private static int precedence(Token.Type type) {
+        return switch (type) {
+            case PLUS, MINUS -> 1;
+            case STAR, SLASH -> 2;
+            default -> 0;
+        };
+    }
+
+    private Node parseUnary(State s) {
+        s.enter();
+        Node node;
+        Token token = s.peek();
+        if (token.type() == Token.Type.PLUS) {
+            s.next();
+            node = parseUnary(s);
+        } else if (token.type() == Token.Type.MINUS) {
+            s.next();
+            node = new Node.Neg(parseUnary(s));
+            s.checkHeight(s.height + 1, token);
+        } else {
+            node = parsePrimary(s);
+        }
+        s.nesting--;
+        return node;
+    }
+
+    private Node parsePrimary(State s) {
+        Token token = s.next();
+        switch (token.type()) {
+            case NUMBER:
+                s.height = 1;
+                return new Node.Num(token.value(), token.text(s.source));
+
+            case LPAREN: {
+                Node inner = parseExpression(s, 1);
+                s.expect(Token.Type.RPAREN, "')'");
+                return inner;
+            }
+
+            case FUNCTION: {
+                s.expect(Token.Type.LPAREN, "'('");
+                List<Node> args = parseArguments(s);
+                s.checkHeight(s.height + 1, token);
+                return new Node.Call(token.function(), args);
+            }
+
+            case IDENTIFIER: {
+                String name = token.text(s.source);
+                if (s.peek().type() == Token.Type.LPAREN) {
+                    throw new ExpressionException("Unknown function: " + name, token.start());
+                }
+                Integer slot = s.variables.get(name);
+                if (slot == null) {
+                    throw new ExpressionException("Unknown variable: " + name, token.start());
+                }
+                s.height = 1;
+                return new Node.Var(name, slot);
+            }
+
+            case END:
+                throw new ExpressionException("Unexpected end of expression", token.start());
+
+            default:
+                throw new ExpressionException("Unexpected '" + token.text(s.source) + "'", token.start());
+        }
+    }
+
+    /**
+     * Parses call arguments up to the closing parenthesis, leaving the
+     * height of the tallest argument in the state.
+     */
+    private List<Node> parseArguments(State s) {
+        List<Node> args = new ArrayList<>();
+        if (s.peek().type() == Token.Type.RPAREN) {
+            s.next();
+            s.height = 0;
+            return List.of();
+        }
+        int height = 0;
+        while (true) {
+            args.add(parseExpression(s, 1));
+            height = Math.max(height, s.height);
+            Token t = s.next();
+            if (t.type() == Token.Type.RPAREN) {
+                s.height = height;
+                return List.copyOf(args);
+            }
+            if (t.type() != Token.Type.COMMA) {
+                throw new ExpressionException("Expected ',' or ')'", t.start());
+            }
+        }
+    }
+
+    /**
+     * Cursor over the token list of a single parse.
+     */
+    private static final class State {
+        final String source;
+        final List<Token> tokens;
+        final Map<String, Integer> variables;
+        int pos;
+        // Operands being parsed around the current one, one per sign, parenthesis or call
+        int nesting;
+        // Height of the subtree that was parsed last
+        int height;
+
+        State(String source, List<Token> tokens, Map<String, Integer> variables) {
+            this.source = source;
+            this.tokens = tokens;
+            this.variables = variables;
+        }
+
+        Token peek() {
+            return tokens.get(pos);
+        }
+
+        Token next() {
+            Token t = tokens.get(pos);
+            if (t.type() != Token.Type.END) {
+                pos++;
+            }
+            return t;
+        }
+
+        void enter() {
+            if (nesting++ > MAX_DEPTH) {
+                throw new ExpressionException("Expression too deeply nested", peek().start());
+            }
+        }
+
+        int checkHeight(int height, Token at) {
+            if (height > MAX_DEPTH) {
+                throw new ExpressionException("Expression too deeply nested", at.start());
+            }
+            this.height = height;
+            return height;
+        }
+
+        void expect(Token.Type type, String what) {
+            Token t = next();
+            if (t.type() != type) {
+                throw new ExpressionException("Expected " + what, t.start());
+            }
+        }
+    }
+}
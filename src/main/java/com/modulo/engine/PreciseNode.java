@@ -0,0 +1,394 @@
+package com.modulo.engine;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import com.modulo.internal.CalcFunction;
+import com.modulo.internal.DecimalFunction;
+import com.modulo.internal.MemoizedFunction;
+import com.modulo.jfr.RecordedFunction;
+import com.modulo.metrics.MeteredFunction;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * A node of the form of an expression that the decimal and hybrid numeric
+ * modes evaluate, built once from the tree as parsed, before optimization.
+ * <p>
+ * The optimizer folds constants in {@code double}, which would lose the
+ * decimal literals, so this form is built from the unoptimized tree and
+ * keeps every literal both as a {@link BigDecimal} and as its {@code double}
+ * with the error between the two.
+ * </p>
+ * <p>
+ * Every node can be evaluated in decimal arithmetic, or in {@code double}
+ * with a running bound on the distance to the exact result. The bound comes
+ * from error-free transformations: the rounding error of a sum is recovered
+ * exactly with TwoSum, that of a product with a fused multiply-add, and that
+ * of a quotient from its residual. Errors of the operands are propagated on
+ * top with the usual first-order formulas, all enlarged by {@link #SLACK} to
+ * cover the rounding of the bound itself. The error terms of products and
+ * quotients are only exact above {@link #EXACT_MIN}; smaller or non-finite
+ * results get an infinite bound.
+ * </p>
+ */
+sealed interface PreciseNode {
+
+    /** Enlarges every bound to cover the rounding of computing it. */
+    double SLACK = 1 + 0x1p-40;
+
+    /**
+     * The smallest magnitude at which the rounding error of a product, or
+     * the residual of a quotient, cannot underflow.
+     */
+    double EXACT_MIN = Double.MIN_NORMAL * 0x1p53;
+
+    /**
+     * Evaluates this node in decimal arithmetic.
+     *
+     * @param vars    The variable values, indexed by slot.
+     * @param context The precision and rounding of every operation.
+     * @return The value of the subtree.
+     * @throws ArithmeticException On division by zero, or if a function has
+     *                             no finite result.
+     */
+    BigDecimal evaluate(BigDecimal[] vars, MathContext context);
+
+    /**
+     * Evaluates this node in {@code double} and bounds its error.
+     *
+     * @param vars  The variable values, indexed by slot; taken as exact.
+     * @param bound Receives the largest possible absolute difference between
+     *              the result and the exact value of the subtree, which may
+     *              be infinite.
+     * @return The value of the subtree.
+     */
+    double evaluate(double[] vars, Bound bound);
+
+    /**
+     * Tells whether the subtree calls a function that is not pure, which
+     * must not be called again to refine a result.
+     *
+     * @return {@code true} if an impure function is called.
+     */
+    boolean callsImpure();
+
+    /**
+     * The error bound of the node evaluated last, passed down the tree so
+     * that {@code double} evaluation allocates nothing per node.
+     */
+    final class Bound {
+        double error;
+    }
+
+    /**
+     * Builds the precise form of a parsed tree.
+     *
+     * @param node The tree, as parsed.
+     * @return The precise form.
+     */
+    static PreciseNode of(Node node) {
+        return switch (node) {
+            case Node.Num n -> Lit.of(n);
+            case Node.Var v -> new Var(v.slot());
+            case Node.Neg n -> new Neg(of(n.operand()));
+            case Node.Add n -> new Add(of(n.left()), of(n.right()));
+            case Node.Sub n -> new Add(of(n.left()), new Neg(of(n.right())));
+            case Node.Mul n -> new Mul(of(n.left()), of(n.right()));
+            case Node.Div n -> new Div(of(n.left()), of(n.right()));
+            case Node.Call c -> Call.of(c);
+            // Only in optimized trees; evaluate the shared subexpression in place
+            case Node.Store s -> of(s.value());
+            case Node.Load l -> of(l.value());
+        };
+    }
+
+    /**
+     * Tells whether a {@code double} is certain to be the correctly rounded
+     * value of every number within {@code error} of it.
+     *
+     * @param value The value.
+     * @param error The bound on its error.
+     * @return {@code true} if the value is settled.
+     */
+    static boolean isSettled(double value, double error) {
+        if (error == 0) {
+            return true;
+        }
+        double gap = Math.ulp(value);
+        if ((Double.doubleToRawLongBits(value) & 0x000F_FFFF_FFFF_FFFFL) == 0) {
+            // Below a power of two the spacing halves
+            gap *= 0.5;
+        }
+        return error < gap * 0.5;
+    }
+
+    /**
+     * Gets the error of taking a {@code double} result of a function for the
+     * shortest decimal that rounds to it.
+     */
+    private static double conversionError(double value) {
+        return value == Math.rint(value) && Math.abs(value) <= 0x1p53 ? 0 : Math.ulp(value) * 0.5;
+    }
+
+    /**
+     * A literal, with its decimal value and the error of its {@code double}.
+     */
+    record Lit(BigDecimal decimal, double value, double error) implements PreciseNode {
+        static Lit of(Node.Num n) {
+            double value = n.value();
+            BigDecimal decimal = null;
+            if (n.text() != null && Double.isFinite(value)) {
+                try {
+                    decimal = new BigDecimal(n.text());
+                } catch (NumberFormatException e) {
+                    // Exponent beyond the range of BigDecimal; the double is all there is
+                }
+            }
+            if (decimal == null) {
+                // Computed by the optimizer, or out of range
+                return new Lit(Double.isFinite(value) ? new BigDecimal(value) : null, value, 0);
+            }
+            BigDecimal difference = decimal.subtract(new BigDecimal(value)).abs();
+            // A difference that underflows is still not zero
+            double error = difference.signum() == 0 ? 0 : Math.max(difference.doubleValue(), Double.MIN_VALUE) * SLACK;
+            return new Lit(decimal, value, error);
+        }
+
+        public BigDecimal evaluate(BigDecimal[] vars, MathContext context) {
+            if (decimal == null) {
+                throw new ArithmeticException("Number out of range: " + value);
+            }
+            return decimal;
+        }
+
+        public double evaluate(double[] vars, Bound bound) {
+            bound.error = error;
+            return value;
+        }
+
+        public boolean callsImpure() {
+            return false;
+        }
+    }
+
+    /** A variable. */
+    record Var(int slot) implements PreciseNode {
+        public BigDecimal evaluate(BigDecimal[] vars, MathContext context) {
+            return vars[slot];
+        }
+
+        public double evaluate(double[] vars, Bound bound) {
+            bound.error = 0;
+            return vars[slot];
+        }
+
+        public boolean callsImpure() {
+            return false;
+        }
+    }
+
+    /** Negation, which is exact. */
+    record Neg(PreciseNode operand) implements PreciseNode {
+        public BigDecimal evaluate(BigDecimal[] vars, MathContext context) {
+            return operand.evaluate(vars, context).negate();
+        }
+
+        public double evaluate(double[] vars, Bound bound) {
+            return -operand.evaluate(vars, bound);
+        }
+
+        public boolean callsImpure() {
+            return operand.callsImpure();
+        }
+    }
+
+    /** Addition; subtraction adds the negated right operand. */
+    record Add(PreciseNode left, PreciseNode right) implements PreciseNode {
+        public BigDecimal evaluate(BigDecimal[] vars, MathContext context) {
+            return left.evaluate(vars, context).add(right.evaluate(vars, context), context);
+        }
+
+        public double evaluate(double[] vars, Bound bound) {
+            double a = left.evaluate(vars, bound);
+            double ea = bound.error;
+            double b = right.evaluate(vars, bound);
+            double s = a + b;
+            // TwoSum: s + t == a + b exactly
+            double bb = s - a;
+            double t = (a - (s - bb)) + (b - bb);
+            bound.error = (ea + bound.error + Math.abs(t)) * SLACK;
+            return s;
+        }
+
+        public boolean callsImpure() {
+            return left.callsImpure() || right.callsImpure();
+        }
+    }
+
+    /** Multiplication. */
+    record Mul(PreciseNode left, PreciseNode right) implements PreciseNode {
+        public BigDecimal evaluate(BigDecimal[] vars, MathContext context) {
+            return left.evaluate(vars, context).multiply(right.evaluate(vars, context), context);
+        }
+
+        public double evaluate(double[] vars, Bound bound) {
+            double a = left.evaluate(vars, bound);
+            double ea = bound.error;
+            double b = right.evaluate(vars, bound);
+            double eb = bound.error;
+            double p = a * b;
+            if (!Double.isFinite(p) || Math.abs(p) < EXACT_MIN && a != 0 && b != 0) {
+                bound.error = Double.POSITIVE_INFINITY;
+                return p;
+            }
+            // p + t == a * b exactly
+            double t = Math.fma(a, b, -p);
+            bound.error = (Math.abs(a) * eb + Math.abs(b) * ea + ea * eb + Math.abs(t)) * SLACK;
+            return p;
+        }
+
+        public boolean callsImpure() {
+            return left.callsImpure() || right.callsImpure();
+        }
+    }
+
+    /** Division. */
+    record Div(PreciseNode left, PreciseNode right) implements PreciseNode {
+        public BigDecimal evaluate(BigDecimal[] vars, MathContext context) {
+            return left.evaluate(vars, context).divide(right.evaluate(vars, context), context);
+        }
+
+        public double evaluate(double[] vars, Bound bound) {
+            double a = left.evaluate(vars, bound);
+            double ea = bound.error;
+            double b = right.evaluate(vars, bound);
+            double eb = bound.error;
+            double q = a / b;
+            double margin = Math.abs(b) - eb;
+            if (!(margin > 0)) {
+                // The exact divisor may be zero
+                bound.error = Double.POSITIVE_INFINITY;
+                return q;
+            }
+            if (!Double.isFinite(q) || a != 0 && (Math.abs(q) < EXACT_MIN || Math.abs(a) < EXACT_MIN)) {
+                bound.error = Double.POSITIVE_INFINITY;
+                return q;
+            }
+            // a - q * b exactly, so the rounding error of q is r / b
+            double r = Math.fma(-q, b, a);
+            bound.error = ((ea + Math.abs(q) * eb) / margin + Math.abs(r / b)) * SLACK;
+            return q;
+        }
+
+        public boolean callsImpure() {
+            return left.callsImpure() || right.callsImpure();
+        }
+    }
+
+    /**
+     * A function call. Functions with a {@link DecimalFunction} implementation
+     * compute in decimal; the others are called with their arguments rounded
+     * to {@code double}.
+     */
+    record Call(CalcFunction function, DecimalFunction decimal, PreciseNode[] args) implements PreciseNode {
+        static Call of(Node.Call c) {
+            PreciseNode[] args = new PreciseNode[c.args().size()];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = PreciseNode.of(c.args().get(i));
+            }
+            return new Call(c.function(), decimalOf(c.function()), args);
+        }
+
+        /**
+         * Finds the decimal implementation under the registry's recording,
+         * metering and caching wrappers.
+         */
+        private static DecimalFunction decimalOf(CalcFunction f) {
+            while (true) {
+                if (f instanceof DecimalFunction d) {
+                    return d;
+                } else if (f instanceof RecordedFunction r) {
+                    f = r.getDelegate();
+                } else if (f instanceof MeteredFunction m) {
+                    f = m.getDelegate();
+                } else if (f instanceof MemoizedFunction m) {
+                    f = m.getDelegate();
+                } else {
+                    return null;
+                }
+            }
+        }
+
+        public BigDecimal evaluate(BigDecimal[] vars, MathContext context) {
+            if (decimal != null) {
+                BigDecimal[] values = new BigDecimal[args.length];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = args[i].evaluate(vars, context);
+                }
+                return decimal.execute(context, values);
+            }
+            double[] values = new double[args.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = args[i].evaluate(vars, context).doubleValue();
+            }
+            double result = function.execute(values);
+            if (!Double.isFinite(result)) {
+                throw new ArithmeticException(function.getName() + " has no finite result: " + result);
+            }
+            return BigDecimal.valueOf(result);
+        }
+
+        public double evaluate(double[] vars, Bound bound) {
+            double[] values = new double[args.length];
+            boolean exact = true;
+            boolean settled = true;
+            for (int i = 0; i < values.length; i++) {
+                values[i] = args[i].evaluate(vars, bound);
+                exact &= bound.error == 0;
+                settled &= isSettled(values[i], bound.error);
+            }
+            double result = function.execute(values);
+            if (decimal != null) {
+                // The decimal execution sees the exact arguments
+                bound.error = exact ? decimal.errorBound(result, values) : Double.POSITIVE_INFINITY;
+            } else {
+                // The decimal evaluation rounds the arguments to the same doubles
+                bound.error = settled ? conversionError(result) : Double.POSITIVE_INFINITY;
+            }
+            return result;
+        }
+
+        public boolean callsImpure() {
+            if (!function.isPure()) {
+                return true;
+            }
+            for (PreciseNode arg : args) {
+                if (arg.callsImpure()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
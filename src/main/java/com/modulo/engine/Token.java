@@ -0,0 +1,63 @@
+package com.modulo.engine;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import com.modulo.internal.CalcFunction;
+
+/**
+ * A single lexical token produced by the {@link Lexer}.
+ * <p>
+ * Tokens only record offsets into the source text, so lexing does not copy
+ * substrings. Numeric literals carry their parsed value and function names
+ * the function they resolved to.
+ * </p>
+ *
+ * @param type     The kind of token.
+ * @param start    The offset of the first character of the token.
+ * @param end      The offset just past the last character of the token.
+ * @param value    The numeric value, for {@link Type#NUMBER} tokens.
+ * @param function The called function, for {@link Type#FUNCTION} tokens.
+ */
+record Token(Type type, int start, int end, double value, CalcFunction function) {
+
+    Token(Type type, int start, int end, double value) {
+        this(type, start, end, value, null);
+    }
+
+    /**
+     * The kinds of token understood by the {@link Parser}.
+     */
+    enum Type {
+        NUMBER, IDENTIFIER, FUNCTION, PLUS, MINUS, STAR, SLASH, LPAREN, RPAREN, COMMA, END
+    }
+
+    /**
+     * Returns the source text covered by this token.
+     *
+     * @param source The text the token was read from.
+     * @return The token text.
+     */
+    String text(String source) {
+        return source.substring(start, end);
+    }
+}
@@ -0,0 +1,431 @@
+package com.modulo.format;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Formats doubles as the shortest decimal that reads back as the same value.
+ * <p>
+ * The digits are found with the Schubfach algorithm (R. Giulietti, "The
+ * Schubfach way to render doubles", 2020), the same algorithm behind
+ * {@link Double#toString(double)} since JDK 19, and written straight into a
+ * caller's {@link StringBuilder}: {@link #appendTo(StringBuilder, double)}
+ * allocates nothing apart from growing the builder. Integral values in the
+ * {@code long} range are written exactly, without a decimal point, so
+ * {@code 2.5 * 4} prints {@code 10} and {@code 1e20} prints {@code 1.0E20}.
+ * </p>
+ * <p>
+ * A formatter can round to a number of significant digits and choose
+ * between plain and scientific notation. Instances are immutable and can be
+ * shared between threads.
+ * </p>
+ *
+ * <pre>
+ * DoubleFormatter.SHORTEST.format(0.1 + 0.2);                     // 0.30000000000000004
+ * new DoubleFormatter(10, Notation.AUTO).format(0.1 + 0.2);        // 0.3
+ * new DoubleFormatter(3, Notation.SCIENTIFIC).format(123456);      // 1.23E5
+ * </pre>
+ */
+public final class DoubleFormatter {
+
+    /** The largest number of significant digits a formatter can be asked for. */
+    public static final int MAX_PRECISION = 17;
+
+    /** Shortest round-trip digits in {@link Notation#AUTO} notation. */
+    public static final DoubleFormatter SHORTEST = new DoubleFormatter(0, Notation.AUTO);
+
+    /**
+     * How the decimal exponent is written.
+     */
+    public enum Notation {
+        /**
+         * Plain for exact integers and for magnitudes from {@code 1e-3} up to
+         * {@code 1e7}, scientific otherwise, as {@link Double#toString(double)}.
+         */
+        AUTO,
+        /** Always plain, padding with zeros: {@code 100000000000000000000}. */
+        PLAIN,
+        /** Always scientific: {@code 1.25E2}. */
+        SCIENTIFIC;
+
+        /**
+         * Parses a notation name, ignoring case.
+         *
+         * @param name The name, e.g. {@code auto}.
+         * @return The notation.
+         * @throws IllegalArgumentException If the name is unknown.
+         */
+        public static Notation parse(String name) {
+            for (Notation notation : values()) {
+                if (notation.name().equalsIgnoreCase(name.trim())) {
+                    return notation;
+                }
+            }
+            throw new IllegalArgumentException("Unknown notation: " + name);
+        }
+    }
+
+    // Binary64 layout
+    private static final int P = 53;
+    private static final int Q_MIN = -1074;
+    private static final long C_MIN = 1L << (P - 1);
+    private static final int BQ_MASK = 0x7FF;
+    private static final long T_MASK = C_MIN - 1;
+    // Subnormal significands below this are scaled by 10 to get enough digits
+    private static final long C_TINY = 3;
+    private static final long MASK_63 = (1L << 63) - 1;
+
+    private static final long[] POW10 = new long[19];
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    private final int precision;
+    private final Notation notation;
+
+    /**
+     * Constructs a new {@code DoubleFormatter}.
+     *
+     * @param precision The maximum number of significant digits, from 1 to
+     *                  {@link #MAX_PRECISION}, or 0 for the shortest digits
+     *                  that read back as the same value.
+     * @param notation  How the exponent is written.
+     * @throws IllegalArgumentException If the precision is out of range.
+     */
+    public DoubleFormatter(int precision, Notation notation) {
+        if (precision < 0 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("precision must be between 0 and " + MAX_PRECISION + ": " + precision);
+        }
+        if (notation == null) {
+            throw new IllegalArgumentException("notation must not be null");
+        }
+        this.precision = precision;
+        this.notation = notation;
+    }
+
+    /**
+     * Gets the maximum number of significant digits.
+     *
+     * @return The precision, or 0 for the shortest round-trip digits.
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Gets the notation.
+     *
+     * @return The notation.
+     */
+    public Notation getNotation() {
+        return notation;
+    }
+
+    /**
+     * Formats a value.
+     *
+     * @param value The value.
+     * @return The formatted value.
+     */
+    public String format(double value) {
+        return appendTo(new StringBuilder(24), value).toString();
+    }
+
+    /**
+     * Appends a formatted value without allocating.
+     *
+     * @param sb    The builder to append to.
+     * @param value The value.
+     * @return The builder.
+     */
+    public StringBuilder appendTo(StringBuilder sb, double value) {
+        if (value != value) {
+            return sb.append("NaN");
+        }
+        if (value == Double.POSITIVE_INFINITY) {
+            return sb.append("Infinity");
+        }
+        if (value == Double.NEGATIVE_INFINITY) {
+            return sb.append("-Infinity");
+        }
+        if (value == 0) {
+            // Including -0, which a calculator shows as 0
+            return sb.append(notation == Notation.SCIENTIFIC ? "0.0E0" : "0");
+        }
+
+        long l = (long) value;
+        // Long.MAX_VALUE is only reached by saturation: 2^63 itself is not a long
+        if (l == value && l != Long.MAX_VALUE && notation != Notation.SCIENTIFIC) {
+            if (precision == 0) {
+                return sb.append(l);
+            }
+            long f = Math.abs(l);
+            int n = f < 0 ? 19 : digitCount(f);
+            if (n <= precision) {
+                return sb.append(l);
+            }
+            if (f > 0) {
+                // Round the exact value, so there is no double rounding
+                if (l < 0) {
+                    sb.append('-');
+                }
+                int e = n - precision;
+                long scale = POW10[e];
+                long q = f / scale;
+                long r = f - q * scale;
+                long half = scale >> 1;
+                if (r > half || r == half && (q & 1) != 0) {
+                    q++;
+                }
+                while (q % 10 == 0) {
+                    q /= 10;
+                    e++;
+                }
+                return write(sb, q, e);
+            }
+            // Long.MIN_VALUE has no positive counterpart; round it like a fraction
+        }
+
+        long bits = Double.doubleToRawLongBits(value);
+        if (bits < 0) {
+            sb.append('-');
+        }
+        long t = bits & T_MASK;
+        int bq = (int) (bits >>> (P - 1)) & BQ_MASK;
+        int q;
+        long c;
+        int dk = 0;
+        if (bq != 0) {
+            q = Q_MIN - 1 + bq;
+            c = C_MIN | t;
+        } else if (t < C_TINY) {
+            q = Q_MIN;
+            c = 10 * t;
+            dk = -1;
+        } else {
+            q = Q_MIN;
+            c = t;
+        }
+        int k = c != C_MIN || q == Q_MIN ? flog10pow2(q) : flog10threeQuartersPow2(q);
+        long f = digits(q, c, k);
+        int e = k + dk;
+        while (f % 10 == 0) {
+            f /= 10;
+            e++;
+        }
+
+        int n = digitCount(f);
+        // A rounding boundary strictly between the value and its shortest
+        // digits would itself be a shorter or closer candidate, so rounding
+        // the digits is exact unless they end on the boundary
+        if (precision > 0 && n > precision) {
+            int drop = n - precision;
+            long scale = POW10[drop];
+            long rounded = f / scale;
+            long r = f - rounded * scale;
+            long half = 5 * POW10[drop - 1];
+            int cmp = Long.compare(r, half);
+            if (cmp == 0) {
+                // The shortest digits end in 5 exactly; the binary value decides
+                cmp = new BigDecimal(Math.abs(value)).compareTo(BigDecimal.valueOf(rounded * 10 + 5, -(e + drop - 1)));
+            }
+            if (cmp > 0 || cmp == 0 && (rounded & 1) != 0) {
+                rounded++;
+            }
+            f = rounded;
+            e += drop;
+            while (f % 10 == 0) {
+                f /= 10;
+                e++;
+            }
+        }
+        return write(sb, f, e);
+    }
+
+    /**
+     * Writes {@code f * 10^e} in the notation of this formatter.
+     */
+    private StringBuilder write(StringBuilder sb, long f, int e) {
+        int n = digitCount(f);
+        // The exponent of the leading digit
+        int exponent = e + n - 1;
+        boolean plain = switch (notation) {
+            case PLAIN -> true;
+            case SCIENTIFIC -> false;
+            case AUTO -> exponent >= -3 && exponent < 7;
+        };
+        if (!plain) {
+            long lead = f / POW10[n - 1];
+            sb.append(lead).append('.');
+            if (n == 1) {
+                sb.append('0');
+            } else {
+                appendPadded(sb, f - lead * POW10[n - 1], n - 1);
+            }
+            return sb.append('E').append(exponent);
+        }
+        if (e >= 0) {
+            sb.append(f);
+            for (int i = 0; i < e; i++) {
+                sb.append('0');
+            }
+        } else if (exponent >= 0) {
+            long whole = f / POW10[-e];
+            sb.append(whole).append('.');
+            appendPadded(sb, f - whole * POW10[-e], -e);
+        } else {
+            sb.append("0.");
+            for (int i = -1; i > exponent; i--) {
+                sb.append('0');
+            }
+            sb.append(f);
+        }
+        return sb;
+    }
+
+    /**
+     * Appends {@code value} with leading zeros to {@code width} digits.
+     */
+    private static void appendPadded(StringBuilder sb, long value, int width) {
+        for (int i = digitCount(value); i < width; i++) {
+            sb.append('0');
+        }
+        sb.append(value);
+    }
+
+    private static int digitCount(long value) {
+        // floor(log10(2^bits)) is the count or one less
+        int n = flog10pow2(64 - Long.numberOfLeadingZeros(value));
+        return n < POW10.length && value >= POW10[n] ? n + 1 : Math.max(n, 1);
+    }
+
+    /**
+     * Finds the shortest decimal {@code d * 10^k} in the rounding interval of
+     * {@code c * 2^q}, or the closest one when two candidates qualify.
+     *
+     * @return The digits {@code d}.
+     */
+    private static long digits(int q, long c, int k) {
+        int out = (int) c & 1;
+        long cb = c << 2;
+        long cbr = cb + 2;
+        // The interval is asymmetric below powers of two
+        long cbl = c != C_MIN || q == Q_MIN ? cb - 2 : cb - 1;
+
+        int h = q + flog2pow10(-k) + 2;
+        long g1 = Powers.g1(k);
+        long g0 = Powers.g0(k);
+        long vb = rop(g1, g0, cb << h);
+        long vbl = rop(g1, g0, cbl << h);
+        long vbr = rop(g1, g0, cbr << h);
+
+        long s = vb >> 2;
+        if (s >= 100) {
+            // Try one digit less: s' = floor(s / 10)
+            long sp10 = 10 * Math.multiplyHigh(s, 115_292_150_460_684_698L << 4);
+            long tp10 = sp10 + 10;
+            boolean upin = vbl + out <= sp10 << 2;
+            boolean wpin = (tp10 << 2) + out <= vbr;
+            if (upin != wpin) {
+                return upin ? sp10 : tp10;
+            }
+        }
+        long t = s + 1;
+        boolean uin = vbl + out <= s << 2;
+        boolean win = (t << 2) + out <= vbr;
+        if (uin != win) {
+            return uin ? s : t;
+        }
+        // Both are in the interval: take the closer one, or the even one on a tie
+        long cmp = vb - (s + t << 1);
+        return cmp < 0 || cmp == 0 && (s & 1) == 0 ? s : t;
+    }
+
+    /**
+     * Rounds {@code g * cp / 2^127} to odd, where {@code g = g1 * 2^63 + g0}.
+     */
+    private static long rop(long g1, long g0, long cp) {
+        long x1 = Math.multiplyHigh(g0, cp);
+        long y0 = g1 * cp;
+        long y1 = Math.multiplyHigh(g1, cp);
+        long z = (y0 >>> 1) + x1;
+        long vbp = y1 + (z >>> 63);
+        return vbp | (z & MASK_63) + MASK_63 >>> 63;
+    }
+
+    // floor(log10(2^e)), exact for |e| <= 5456721
+    private static int flog10pow2(int e) {
+        return (int) (e * 661_971_961_083L >> 41);
+    }
+
+    // floor(log10(3/4 * 2^e)), exact for |e| <= 5456721
+    private static int flog10threeQuartersPow2(int e) {
+        return (int) (e * 661_971_961_083L - 274_743_187_321L >> 41);
+    }
+
+    // floor(log2(10^e)), exact for |e| <= 1838394
+    private static int flog2pow10(int e) {
+        return (int) (e * 913_124_641_741L >> 38);
+    }
+
+    /**
+     * The 126-bit approximations {@code g = floor(10^-k * 2^-r) + 1}, with
+     * {@code r = flog2pow10(-k) - 125}, for every {@code k} a double can
+     * need. Computed on first use, as formatting integers never needs them.
+     */
+    private static final class Powers {
+        private static final int K_MIN = flog10pow2(Q_MIN);
+        private static final int K_MAX = flog10pow2(Double.MAX_EXPONENT - P + 1);
+        private static final long[] G = new long[2 * (K_MAX - K_MIN + 1)];
+
+        static {
+            for (int k = K_MIN; k <= K_MAX; k++) {
+                int r = flog2pow10(-k) - 125;
+                BigInteger num = k <= 0 ? BigInteger.TEN.pow(-k) : BigInteger.ONE;
+                BigInteger den = k > 0 ? BigInteger.TEN.pow(k) : BigInteger.ONE;
+                if (r < 0) {
+                    num = num.shiftLeft(-r);
+                } else {
+                    den = den.shiftLeft(r);
+                }
+                BigInteger g = num.divide(den).add(BigInteger.ONE);
+                G[2 * (k - K_MIN)] = g.shiftRight(63).longValueExact();
+                G[2 * (k - K_MIN) + 1] = g.longValue() & MASK_63;
+            }
+        }
+
+        static long g1(int k) {
+            return G[2 * (k - K_MIN)];
+        }
+
+        static long g0(int k) {
+            return G[2 * (k - K_MIN) + 1];
+        }
+    }
+}
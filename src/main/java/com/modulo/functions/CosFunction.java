@@ -22,9 +22,11 @@ package com.modulo.functions;
  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
  * SOFTWARE.
  */
-import com.modulo.internal.CalcFunction;
+import com.modulo.internal.ArrayFunction;
+import com.modulo.internal.CachePolicy;
+import com.modulo.internal.UnaryFunction;
 
-public class CosFunction implements CalcFunction {
+public class CosFunction implements UnaryFunction, ArrayFunction {
     @Override
     public String getName() {
         return "cos";
@@ -36,7 +38,25 @@ public class CosFunction implements CalcFunction {
     }
 
     @Override
-    public double execute(double... args) {
-        return Math.cos(Math.toRadians(args[0]));
+    public boolean isPure() {
+        return true;
+    }
+
+    @Override
+    public CachePolicy getCachePolicy() {
+        return CachePolicy.NONE;
+    }
+
+    @Override
+    public double execute(double x) {
+        return Math.cos(Math.toRadians(x));
+    }
+
+    @Override
+    public void executeArray(double[][] args, double[] out, int length) {
+        double[] x = args[0];
+        for (int i = 0; i < length; i++) {
+            out[i] = Math.cos(Math.toRadians(x[i]));
+        }
     }
 }
@@ -22,9 +22,15 @@ package com.modulo.functions;
  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
  * SOFTWARE.
  */
-import com.modulo.internal.CalcFunction;
+import com.modulo.internal.ArrayFunction;
+import com.modulo.internal.CachePolicy;
+import com.modulo.internal.DecimalFunction;
+import com.modulo.internal.UnaryFunction;
 
-public class CubeFunction implements CalcFunction {
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+public class CubeFunction implements UnaryFunction, ArrayFunction, DecimalFunction {
     @Override
     public String getName() {
         return "cube";
@@ -36,7 +42,37 @@ public class CubeFunction implements CalcFunction {
     }
 
     @Override
-    public double execute(double... args) {
-        return Math.pow(args[0], 3);
+    public boolean isPure() {
+        return true;
+    }
+
+    @Override
+    public CachePolicy getCachePolicy() {
+        return CachePolicy.NONE;
+    }
+
+    @Override
+    public double execute(double x) {
+        return Math.pow(x, 3);
+    }
+
+    @Override
+    public BigDecimal execute(MathContext context, BigDecimal... args) {
+        return args[0].pow(3, context);
+    }
+
+    @Override
+    public double errorBound(double result, double... args) {
+        // Math.pow is exact for integers with a representable result, else within 1 ulp
+        double x = args[0];
+        return x == Math.rint(x) && Math.abs(result) < 0x1p53 ? 0 : Math.ulp(result);
+    }
+
+    @Override
+    public void executeArray(double[][] args, double[] out, int length) {
+        double[] x = args[0];
+        for (int i = 0; i < length; i++) {
+            out[i] = Math.pow(x[i], 3);
+        }
     }
 }
@@ -6,7 +6,7 @@ import com.modulo.internal.Function;
  * Example of a multi-argument function.
  * Usage: max(10, 20) -> 20
  */
-@Function(name = "max", insert = "max(")
+@Function(name = "max", insert = "max(", pure = true, cacheSize = 0)
 public class MaxFunction {
 
     public double run(double a, double b) {
@@ -6,7 +6,7 @@ import com.modulo.internal.Function;
  * Example of a multi-argument function.
  * Usage: min(10, 20) -> 10
  */
-@Function(name = "min", insert = "min(")
+@Function(name = "min", insert = "min(", pure = true, cacheSize = 0)
 public class MinFunction {
 
     public double run(double a, double b) {
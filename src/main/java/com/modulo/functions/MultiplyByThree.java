@@ -6,7 +6,7 @@ import com.modulo.internal.Function;
  * Example Module to multiply by three
  *
  */
-@Function(name = "*3",insert = "*3")
+@Function(name = "*3",insert = "*3", pure = true, cacheSize = 0)
 public class MultiplyByThree {
     public double run(double x) {
         return x * 3;
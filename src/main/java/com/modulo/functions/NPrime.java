@@ -1,36 +1,21 @@
 package com.modulo.functions;
 
 import com.modulo.internal.Function;
+import com.modulo.math.PrimeSieve;
 
 /**
- * complex function example
+ * complex function example: the n-th prime, e.g. NPrime(5) = 11.
+ * Backed by the shared {@link PrimeSieve}, so repeated and increasing
+ * queries reuse the primes already found.
  */
 
-@Function(name = "NPrime", insert = "NPrime(")
+@Function(name = "NPrime", insert = "NPrime(", pure = true)
 public class NPrime {
 
     public double run(double x) {
         int n = (int) x;
         if (n <= 0) return 2;
 
-        int count = 0;
-        int num = 1;
-
-        while (count < n) {
-            num++;
-            if (isPrime(num)) count++;
-        }
-
-        return num;
-    }
-
-    private boolean isPrime(int n) {
-        if (n < 2) return false;
-
-        for (int i = 2; i <= Math.sqrt(n); i++) {
-            if (n % i == 0) return false;
-        }
-
-        return true;
+        return PrimeSieve.shared().nthPrime(n);
     }
 }
@@ -22,9 +22,11 @@ package com.modulo.functions;
  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
  * SOFTWARE.
  */
-import com.modulo.internal.CalcFunction;
+import com.modulo.internal.ArrayFunction;
+import com.modulo.internal.CachePolicy;
+import com.modulo.internal.UnaryFunction;
 
-public class SinFunction implements CalcFunction {
+public class SinFunction implements UnaryFunction, ArrayFunction {
     @Override
     public String getName() {
         return "sin";
@@ -36,7 +38,25 @@ public class SinFunction implements CalcFunction {
     }
 
     @Override
-    public double execute(double... args) {
-        return Math.sin(Math.toRadians(args[0]));
+    public boolean isPure() {
+        return true;
+    }
+
+    @Override
+    public CachePolicy getCachePolicy() {
+        return CachePolicy.NONE;
+    }
+
+    @Override
+    public double execute(double x) {
+        return Math.sin(Math.toRadians(x));
+    }
+
+    @Override
+    public void executeArray(double[][] args, double[] out, int length) {
+        double[] x = args[0];
+        for (int i = 0; i < length; i++) {
+            out[i] = Math.sin(Math.toRadians(x[i]));
+        }
     }
 }
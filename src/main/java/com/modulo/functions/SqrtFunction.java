@@ -22,9 +22,15 @@ package com.modulo.functions;
  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
  * SOFTWARE.
  */
-import com.modulo.internal.CalcFunction;
+import com.modulo.internal.ArrayFunction;
+import com.modulo.internal.CachePolicy;
+import com.modulo.internal.DecimalFunction;
+import com.modulo.internal.UnaryFunction;
 
-public class SqrtFunction implements CalcFunction {
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+public class SqrtFunction implements UnaryFunction, ArrayFunction, DecimalFunction {
     @Override
     public String getName() {
         return "sqrt";
@@ -36,7 +42,36 @@ public class SqrtFunction implements CalcFunction {
     }
 
     @Override
-    public double execute(double... args) {
-        return Math.sqrt(args[0]);
+    public boolean isPure() {
+        return true;
+    }
+
+    @Override
+    public CachePolicy getCachePolicy() {
+        return CachePolicy.NONE;
+    }
+
+    @Override
+    public double execute(double x) {
+        return Math.sqrt(x);
+    }
+
+    @Override
+    public BigDecimal execute(MathContext context, BigDecimal... args) {
+        return args[0].sqrt(context);
+    }
+
+    @Override
+    public double errorBound(double result, double... args) {
+        // Math.sqrt rounds correctly, and an exact root squares back exactly
+        return Math.fma(result, result, -args[0]) == 0 ? 0 : Math.ulp(result) * 0.5;
+    }
+
+    @Override
+    public void executeArray(double[][] args, double[] out, int length) {
+        double[] x = args[0];
+        for (int i = 0; i < length; i++) {
+            out[i] = Math.sqrt(x[i]);
+        }
     }
 }
@@ -22,49 +22,167 @@ package com.modulo.internal;
 * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
 * SOFTWARE.
   */
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * Adapter class to adapt annotated functions to the {@link CalcFunction}
  * interface.
  * <p>
  * This class wraps an object annotated with {@link Function} and exposes it as
- * a {@link CalcFunction}.
+ * a {@link CalcFunction}. The module's {@code run(...)} method is resolved and
+ * validated once, when the adapter is created, and bound to a primitive
+ * functional interface generated by {@link LambdaMetafactory}. Calls therefore
+ * neither box arguments nor go through reflection, and the JIT can inline the
+ * module's code into the caller.
+ * </p>
+ * <p>
+ * The adapter implements every fixed-arity interface so the evaluator can call
+ * it without an argument array; only the one matching {@link #getArgCount()}
+ * is served directly, the others fall back to {@link #execute(double...)}.
+ * </p>
+ * <p>
+ * An adapter created with {@link #lazy} knows its name, arity and cache
+ * settings from the plugin index and only loads and instantiates the module
+ * on its first call.
  * </p>
  */
-public class AnnotatedFunctionAdapter implements CalcFunction {
+public class AnnotatedFunctionAdapter
+        implements NullaryFunction, UnaryFunction, BinaryFunction, TernaryFunction {
+
+    /** Arities up to this bound get a dedicated, non-array invoker. */
+    private static final int MAX_FIXED_ARITY = 3;
 
     private final String name;
     private final String insert;
-    private final Object instance;
-    private final Method runMethod;
+    private final int arity;
+    private final boolean pure;
+    private final CachePolicy cachePolicy;
+
+    // Creates the module on first call; null once linked
+    private Supplier<?> factory;
+    private volatile boolean linked;
+
+    // Once linked, exactly one invoker is non-null, matching the shape of run(...)
+    private Arity0 invoker0;
+    private Arity1 invoker1;
+    private Arity2 invoker2;
+    private Arity3 invoker3;
+    private ArityN invokerN;
 
     /**
      * Constructs a new {@code AnnotatedFunctionAdapter}.
      *
      * @param obj  The object instance containing the function logic.
      * @param meta The {@link Function} annotation metadata.
-     * @throws RuntimeException If the object does not have a {@code run(double)}
-     *                          method.
+     * @throws IllegalArgumentException If the object does not have exactly one
+     *                                  usable {@code run(...)} method, or its
+     *                                  cache settings are invalid.
      */
     public AnnotatedFunctionAdapter(Object obj, Function meta) {
         this.name = meta.name();
         this.insert = meta.insert();
-        this.instance = obj;
-
-        Method[] methods = obj.getClass().getDeclaredMethods();
-        Method target = null;
-        for (Method m : methods) {
-            if (m.getName().equals("run")) {
-                target = m;
-                break;
+        this.pure = meta.pure();
+        this.cachePolicy = pure
+                ? new CachePolicy(meta.cacheSize(), meta.eviction(), meta.ttlMillis())
+                : CachePolicy.DEFAULT;
+
+        Method run = findRunMethod(obj.getClass());
+        this.arity = arityOf(run);
+        link(obj, run);
+    }
+
+    private AnnotatedFunctionAdapter(String name, String insert, int arity, boolean pure,
+            CachePolicy cachePolicy, Supplier<?> factory) {
+        this.name = name;
+        this.insert = insert;
+        this.arity = arity;
+        this.pure = pure;
+        this.cachePolicy = pure ? cachePolicy : CachePolicy.DEFAULT;
+        this.factory = factory;
+    }
+
+    /**
+     * Creates an adapter for a module that is instantiated on first call.
+     * <p>
+     * The declared arity must match the module's {@code run(...)} method;
+     * if it does not, or the module cannot be created, the first call
+     * throws an {@link IllegalStateException}.
+     * </p>
+     *
+     * @param name        The function name.
+     * @param insert      The insert text.
+     * @param arity       The number of {@code run} parameters, or -1 for a
+     *                    single {@code double[]}.
+     * @param pure        Whether results may be cached.
+     * @param cachePolicy How results are cached if the function is pure.
+     * @param factory     Creates the module instance.
+     * @return The adapter.
+     */
+    public static AnnotatedFunctionAdapter lazy(String name, String insert, int arity, boolean pure,
+            CachePolicy cachePolicy, Supplier<?> factory) {
+        return new AnnotatedFunctionAdapter(name, insert, arity, pure, cachePolicy, factory);
+    }
+
+    /**
+     * Creates the module of a lazy adapter and binds its {@code run} method.
+     */
+    private synchronized void link() {
+        if (linked) {
+            return;
+        }
+        try {
+            Object obj = factory.get();
+            Method run = findRunMethod(obj.getClass());
+            if (arityOf(run) != arity) {
+                throw new IllegalArgumentException("run(...) no longer matches the plugin index; rebuild the plugin");
             }
+            link(obj, run);
+        } catch (RuntimeException | LinkageError e) {
+            throw new IllegalStateException("Cannot load module " + name + ": " + e.getMessage(), e);
         }
+        factory = null;
+    }
+
+    private void link(Object obj, Method run) {
+        MethodHandle handle = unreflect(run);
+        boolean isStatic = Modifier.isStatic(run.getModifiers());
+        Object receiver = isStatic ? null : obj;
 
-        if (target == null) {
-            throw new RuntimeException("Modules using @Function must define a run(...) method");
+        Arity0 i0 = null;
+        Arity1 i1 = null;
+        Arity2 i2 = null;
+        Arity3 i3 = null;
+        ArityN in = null;
+        if (arity == -1) {
+            in = bind(ArityN.class, handle, receiver, run);
+        } else {
+            switch (arity) {
+                case 0 -> i0 = bind(Arity0.class, handle, receiver, run);
+                case 1 -> i1 = bind(Arity1.class, handle, receiver, run);
+                case 2 -> i2 = bind(Arity2.class, handle, receiver, run);
+                case 3 -> i3 = bind(Arity3.class, handle, receiver, run);
+                default -> in = spread(handle, receiver, arity);
+            }
         }
-        this.runMethod = target;
+        this.invoker0 = i0;
+        this.invoker1 = i1;
+        this.invoker2 = i2;
+        this.invoker3 = i3;
+        this.invokerN = in;
+        linked = true;
+    }
+
+    private static int arityOf(Method run) {
+        Class<?>[] params = run.getParameterTypes();
+        return params.length == 1 && params[0] == double[].class ? -1 : params.length;
     }
 
     @Override
@@ -79,20 +197,253 @@ public class AnnotatedFunctionAdapter implements CalcFunction {
 
     @Override
     public double execute(double... args) {
-        try {
-            // Convert double[] to Object[] for reflection
-            Object[] objArgs = new Object[args.length];
-            for (int i = 0; i < args.length; i++) {
-                objArgs[i] = args[i];
-            }
-            return ((Number) runMethod.invoke(instance, objArgs)).doubleValue();
-        } catch (Exception e) {
-            throw new RuntimeException("Error running module " + name + ": " + e.getMessage());
+        if (arity >= 0 && args.length != arity) {
+            throw new IllegalArgumentException(
+                    name + " expects " + arity + " argument(s), got " + args.length);
         }
+        if (!linked) {
+            link();
+        }
+        if (invokerN != null) {
+            return invokerN.apply(args);
+        }
+        return switch (arity) {
+            case 0 -> invoker0.apply();
+            case 1 -> invoker1.apply(args[0]);
+            case 2 -> invoker2.apply(args[0], args[1]);
+            default -> invoker3.apply(args[0], args[1], args[2]);
+        };
+    }
+
+    @Override
+    public double execute() {
+        return invoker0 != null ? invoker0.apply() : execute(new double[0]);
+    }
+
+    @Override
+    public double execute(double x) {
+        return invoker1 != null ? invoker1.apply(x) : execute(new double[] { x });
+    }
+
+    @Override
+    public double execute(double a, double b) {
+        return invoker2 != null ? invoker2.apply(a, b) : execute(new double[] { a, b });
+    }
+
+    @Override
+    public double execute(double a, double b, double c) {
+        return invoker3 != null ? invoker3.apply(a, b, c) : execute(new double[] { a, b, c });
     }
 
     @Override
     public int getArgCount() {
-        return runMethod.getParameterCount();
+        return arity;
+    }
+
+    @Override
+    public boolean isPure() {
+        return pure;
+    }
+
+    @Override
+    public CachePolicy getCachePolicy() {
+        return cachePolicy;
+    }
+
+    /**
+     * Finds the single {@code run} method of a module and checks its shape.
+     */
+    private static Method findRunMethod(Class<?> cls) {
+        List<Method> candidates = new ArrayList<>();
+        for (Method m : cls.getDeclaredMethods()) {
+            if (m.getName().equals("run") && !m.isSynthetic() && !m.isBridge()) {
+                candidates.add(m);
+            }
+        }
+
+        if (candidates.isEmpty()) {
+            throw new IllegalArgumentException(
+                    "Modules using @Function must define a run(...) method: " + cls.getName());
+        }
+        if (candidates.size() > 1) {
+            throw new IllegalArgumentException(
+                    "Module " + cls.getName() + " declares overloaded run methods " + candidates
+                            + "; exactly one run(...) is allowed");
+        }
+
+        Method run = candidates.get(0);
+        Class<?>[] params = run.getParameterTypes();
+        if (arityOf(run) != -1) {
+            for (Class<?> p : params) {
+                if (p != double.class) {
+                    throw new IllegalArgumentException("Module " + cls.getName()
+                            + ": run(...) parameters must all be double, or a single double[]; found " + run);
+                }
+            }
+        }
+
+        Class<?> ret = run.getReturnType();
+        if (!isNumeric(ret)) {
+            throw new IllegalArgumentException("Module " + cls.getName()
+                    + ": run(...) must return a primitive number or its wrapper; found " + ret.getName());
+        }
+        return run;
+    }
+
+    private static boolean isNumeric(Class<?> type) {
+        return type == double.class || type == float.class || type == long.class || type == int.class
+                || type == short.class || type == byte.class
+                || type == Double.class || type == Float.class || type == Long.class || type == Integer.class
+                || type == Short.class || type == Byte.class;
+    }
+
+    private static MethodHandle unreflect(Method run) {
+        try {
+            return MethodHandles.lookup().unreflect(run);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Module " + run.getDeclaringClass().getName()
+                    + ": run(...) and its class must be public", e);
+        }
+    }
+
+    /**
+     * Binds {@code run} to one of the primitive invoker interfaces.
+     * <p>
+     * Uses {@link LambdaMetafactory} when the module class is visible from this
+     * class' loader, which yields a plain class the JIT treats like a
+     * hand-written lambda. Otherwise, e.g. for modules from a separate class
+     * loader or whose {@code run} declares checked exceptions that must be
+     * wrapped, falls back to an exact-typed {@link MethodHandle}.
+     * </p>
+     */
+    private static <T> T bind(Class<T> iface, MethodHandle handle, Object receiver, Method run) {
+        Method sam = iface.getDeclaredMethods()[0];
+        MethodType samType = MethodType.methodType(sam.getReturnType(), sam.getParameterTypes());
+
+        if (isVisible(run.getDeclaringClass()) && !declaresCheckedExceptions(run)) {
+            try {
+                MethodType factoryType = receiver == null
+                        ? MethodType.methodType(iface)
+                        : MethodType.methodType(iface, run.getDeclaringClass());
+                MethodHandle factory = LambdaMetafactory.metafactory(MethodHandles.lookup(), sam.getName(),
+                        factoryType, samType, handle, samType).getTarget();
+                Object fn = receiver == null ? factory.invoke() : factory.invoke(receiver);
+                return iface.cast(fn);
+            } catch (Throwable ignored) {
+                // Not expressible as a lambda (e.g. unusual return conversion); use the handle
+            }
+        }
+
+        MethodHandle bound = (receiver == null ? handle : handle.bindTo(receiver)).asType(samType);
+        return iface.cast(fallback(iface, bound));
+    }
+
+    private static Object fallback(Class<?> iface, MethodHandle h) {
+        if (iface == Arity0.class) {
+            return (Arity0) () -> {
+                try {
+                    return (double) h.invokeExact();
+                } catch (Throwable e) {
+                    throw rethrow(e);
+                }
+            };
+        } else if (iface == Arity1.class) {
+            return (Arity1) a -> {
+                try {
+                    return (double) h.invokeExact(a);
+                } catch (Throwable e) {
+                    throw rethrow(e);
+                }
+            };
+        } else if (iface == Arity2.class) {
+            return (Arity2) (a, b) -> {
+                try {
+                    return (double) h.invokeExact(a, b);
+                } catch (Throwable e) {
+                    throw rethrow(e);
+                }
+            };
+        } else if (iface == Arity3.class) {
+            return (Arity3) (a, b, c) -> {
+                try {
+                    return (double) h.invokeExact(a, b, c);
+                } catch (Throwable e) {
+                    throw rethrow(e);
+                }
+            };
+        }
+        return spreadInvoker(h);
+    }
+
+    /**
+     * Adapts {@code run(double, double, ...)} with more than
+     * {@value #MAX_FIXED_ARITY} parameters to take its arguments as an array.
+     */
+    private static ArityN spread(MethodHandle handle, Object receiver, int arity) {
+        MethodHandle bound = receiver == null ? handle : handle.bindTo(receiver);
+        MethodHandle spread = bound.asType(bound.type().changeReturnType(double.class))
+                .asSpreader(double[].class, arity);
+        return spreadInvoker(spread);
+    }
+
+    private static ArityN spreadInvoker(MethodHandle h) {
+        return args -> {
+            try {
+                return (double) h.invokeExact(args);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        };
+    }
+
+    private static boolean declaresCheckedExceptions(Method run) {
+        for (Class<?> type : run.getExceptionTypes()) {
+            if (!RuntimeException.class.isAssignableFrom(type) && !Error.class.isAssignableFrom(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isVisible(Class<?> cls) {
+        try {
+            return Class.forName(cls.getName(), false, AnnotatedFunctionAdapter.class.getClassLoader()) == cls;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Passes unchecked exceptions through untouched and wraps checked ones
+     * declared by {@code run(...)}.
+     */
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException r) {
+            return r;
+        }
+        if (e instanceof Error err) {
+            throw err;
+        }
+        return new RuntimeException("Error running module: " + e.getMessage(), e);
+    }
+
+    interface Arity0 {
+        double apply();
+    }
+
+    interface Arity1 {
+        double apply(double a);
+    }
+
+    interface Arity2 {
+        double apply(double a, double b);
+    }
+
+    interface Arity3 {
+        double apply(double a, double b, double c);
+    }
+
+    interface ArityN {
+        double apply(double[] args);
     }
 }
@@ -0,0 +1,47 @@
+package com.modulo.internal;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+/**
+ * A {@link CalcFunction} that can process whole columns of arguments at once.
+ * <p>
+ * Batch evaluation hands such functions complete argument arrays instead of
+ * calling {@link #execute(double...)} once per element, which lets them run
+ * tight loops the JIT can vectorize.
+ * </p>
+ */
+public interface ArrayFunction extends CalcFunction {
+
+    /**
+     * Executes the function for {@code length} elements.
+     * <p>
+     * {@code args[k][i]} is argument {@code k} of element {@code i}. The arrays
+     * may be longer than {@code length} and must not be retained.
+     * </p>
+     *
+     * @param args   The argument columns.
+     * @param out    Receives the results in {@code out[0..length)}.
+     * @param length The number of elements to process.
+     */
+    void executeArray(double[][] args, double[] out, int length);
+}
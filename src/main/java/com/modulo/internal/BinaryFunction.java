@@ -0,0 +1,56 @@
+package com.modulo.internal;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+/**
+ * A {@link CalcFunction} that always takes 2 arguments.
+ * <p>
+ * The evaluator calls {@link #execute(double, double)} directly, without
+ * packing the arguments into an array. Implementations only need to provide
+ * that method; {@link #execute(double...)} is derived from it.
+ * </p>
+ */
+public interface BinaryFunction extends CalcFunction {
+
+    /**
+     * Executes the function with two arguments.
+     *
+     * @param a The first argument.
+     * @param b The second argument.
+     * @return The result of the function.
+     */
+    double execute(double a, double b);
+
+    @Override
+    default double execute(double... args) {
+        if (args.length != 2) {
+            throw new IllegalArgumentException(getName() + " expects 2 argument(s), got " + args.length);
+        }
+        return execute(args[0], args[1]);
+    }
+
+    @Override
+    default int getArgCount() {
+        return 2;
+    }
+}
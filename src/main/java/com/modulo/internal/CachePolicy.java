@@ -0,0 +1,79 @@
+package com.modulo.internal;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+/**
+ * How results of a pure function are cached.
+ *
+ * @param maxEntries The maximum number of cached results; rounded up to a
+ *                   power of two. {@code 0} disables the cache.
+ * @param eviction   Which entry makes room when the cache is full.
+ * @param ttlMillis  How long a result stays valid, or {@code 0} to keep it
+ *                   until it is evicted.
+ * @see CalcFunction#isPure()
+ */
+public record CachePolicy(int maxEntries, Eviction eviction, long ttlMillis) {
+
+    /**
+     * The policy used when a pure function does not declare its own.
+     */
+    public static final CachePolicy DEFAULT = new CachePolicy(4096, Eviction.LRU, 0);
+
+    /**
+     * The policy of pure functions that are too cheap to be worth caching.
+     */
+    public static final CachePolicy NONE = new CachePolicy(0, Eviction.LRU, 0);
+
+    /**
+     * Validates the policy.
+     *
+     * @throws IllegalArgumentException If a value is out of range.
+     */
+    public CachePolicy {
+        if (maxEntries < 0 || maxEntries > 1 << 24) {
+            throw new IllegalArgumentException("maxEntries must be between 0 and 2^24: " + maxEntries);
+        }
+        if (eviction == null) {
+            throw new IllegalArgumentException("eviction must not be null");
+        }
+        if (ttlMillis < 0) {
+            throw new IllegalArgumentException("ttlMillis must not be negative: " + ttlMillis);
+        }
+    }
+
+    /**
+     * Eviction strategies. Both are applied within the small group of slots an
+     * argument hashes to, not across the whole cache.
+     */
+    public enum Eviction {
+        /**
+         * Replace the entry that was used least recently.
+         */
+        LRU,
+
+        /**
+         * Replace the entry that was added first.
+         */
+        FIFO
+    }
+}
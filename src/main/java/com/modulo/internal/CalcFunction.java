@@ -28,14 +28,21 @@ package com.modulo.internal;
  * Implementations of this interface define a function that can be used in the
  * calculator.
  * </p>
+ * <p>
+ * Functions with a fixed number of arguments can implement
+ * {@link NullaryFunction}, {@link UnaryFunction}, {@link BinaryFunction} or
+ * {@link TernaryFunction} instead, which the evaluator calls without
+ * allocating an argument array.
+ * </p>
  */
 public interface CalcFunction {
-    // make sure the Name contains the text. e.g. name sin will not work with sint(
-    // ,but sint will work
     /**
      * Gets the name of the function.
      * <p>
-     * This name is displayed on the calculator button.
+     * This name is displayed on the calculator button and is what expressions
+     * call. It may contain any characters; when one name is a prefix of
+     * another (e.g. {@code sin} and {@code sinh}), the longest one followed by
+     * {@code (} is used.
      * </p>
      *
      * @return The function name.
@@ -70,4 +77,32 @@ public interface CalcFunction {
     default int getArgCount() {
         return 1;
     }
+
+    /**
+     * Tells whether this function is pure: its result depends only on its
+     * arguments and calling it has no side effects.
+     * <p>
+     * The results of pure functions taking one to three arguments are cached
+     * according to {@link #getCachePolicy()}, which pays off for expensive
+     * functions that see the same arguments repeatedly. Calls of pure
+     * functions with constant arguments are also evaluated once when an
+     * expression is parsed, and repeated calls with the same arguments are
+     * shared within an expression.
+     * </p>
+     *
+     * @return {@code true} if results may be cached.
+     */
+    default boolean isPure() {
+        return false;
+    }
+
+    /**
+     * Gets how results are cached if this function {@linkplain #isPure() is
+     * pure}.
+     *
+     * @return The cache policy.
+     */
+    default CachePolicy getCachePolicy() {
+        return CachePolicy.DEFAULT;
+    }
 }
@@ -0,0 +1,362 @@
+package com.modulo.internal;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import com.modulo.engine.NumericMode;
+import com.modulo.format.DoubleFormatter;
+
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable, validated snapshot of {@code application.yml}.
+ * <p>
+ * The settings the application itself uses are parsed once, when the
+ * snapshot is built: colors are decoded to RGB values, numbers are range checked and
+ * names are resolved. A setting that is missing or invalid falls back to its
+ * default, with a warning. Other keys, such as those of plugins, remain
+ * available through {@link #get(String)}.
+ * </p>
+ * <p>
+ * {@link ConfigLoader#current()} returns the snapshot in effect. A reload
+ * replaces it as a whole, so a reader holding a snapshot never sees a mix of
+ * old and new settings.
+ * </p>
+ */
+public final class Config {
+
+    /** The settings used when {@code application.yml} leaves them out. */
+    static final Map<String, Object> DEFAULTS = defaults();
+
+    private final Map<String, Object> values;
+
+    private final String windowTitle;
+    private final int windowWidth;
+    private final int windowHeight;
+    // Colors as 0xRRGGBB; the window turns them into AWT colors, so the
+    // headless parts of the application never load AWT
+    private final int background;
+    private final int keypad;
+    private final int buttonText;
+    private final int buttonBackground;
+    private final int buttonHover;
+    private final String defaultResult;
+    private final int debounceMs;
+    private final int resultPrecision;
+    private final DoubleFormatter.Notation resultNotation;
+    private final String pluginsDirectory;
+    private final boolean pluginsWatch;
+    private final boolean configWatch;
+    private final String serverHost;
+    private final int serverPort;
+    private final int serverCacheSize;
+    private final int serverMaxBodyBytes;
+    private final int serverMaxBatchBytes;
+    private final boolean metricsEnabled;
+    private final int metricsSampleEvery;
+    private final boolean metricsJmx;
+    private final NumericMode numericMode;
+    private final MathContext mathContext;
+
+    /**
+     * Builds a snapshot from flattened settings.
+     *
+     * @param loaded The settings read from the file, keyed by dotted path;
+     *               defaults are added for the missing ones.
+     */
+    Config(Map<String, Object> loaded) {
+        Map<String, Object> merged = new HashMap<>(DEFAULTS);
+        merged.putAll(loaded);
+        this.values = Collections.unmodifiableMap(merged);
+
+        windowTitle = string("ui.window.title");
+        windowWidth = integer("ui.window.width", 1, Short.MAX_VALUE);
+        windowHeight = integer("ui.window.height", 1, Short.MAX_VALUE);
+        background = color("ui.colors.background");
+        keypad = color("ui.colors.keypad");
+        buttonText = color("ui.colors.buttonText");
+        buttonBackground = color("ui.colors.buttonBackground");
+        buttonHover = color("ui.colors.buttonHover");
+        defaultResult = string("ui.labels.defaultResult");
+        debounceMs = integer("ui.live.debounceMs", 0, 60_000);
+        resultPrecision = integer("ui.result.precision", 0, DoubleFormatter.MAX_PRECISION);
+        resultNotation = notation("ui.result.notation");
+        pluginsDirectory = string("plugins.directory");
+        pluginsWatch = bool("plugins.watch");
+        configWatch = bool("config.watch");
+        serverHost = string("server.host");
+        serverPort = integer("server.port", 0, 65535);
+        serverCacheSize = integer("server.cacheSize", 1, Integer.MAX_VALUE);
+        serverMaxBodyBytes = integer("server.maxBodyBytes", 1, Integer.MAX_VALUE);
+        serverMaxBatchBytes = integer("server.maxBatchBytes", 1, Integer.MAX_VALUE);
+        metricsEnabled = bool("metrics.enabled");
+        metricsSampleEvery = integer("metrics.sampleEvery", 1, 1 << 30);
+        metricsJmx = bool("metrics.jmx");
+        numericMode = numericMode("engine.numericMode");
+        mathContext = new MathContext(integer("engine.precision", 1, 1000), RoundingMode.HALF_EVEN);
+    }
+
+    private static Map<String, Object> defaults() {
+        Map<String, Object> d = new HashMap<>();
+        d.put("ui.window.title", "Modulator Calculator");
+        d.put("ui.window.width", 400);
+        d.put("ui.window.height", 600);
+        d.put("ui.colors.background", "#FFFFFF");
+        d.put("ui.colors.keypad", "#F0F0F0");
+        d.put("ui.colors.buttonText", "#000000");
+        d.put("ui.colors.buttonBackground", "#E0E0E0");
+        d.put("ui.colors.buttonHover", "#D0D0D0");
+        d.put("ui.labels.defaultResult", "= 0");
+        d.put("ui.live.debounceMs", 120);
+        d.put("ui.result.precision", 0);
+        d.put("ui.result.notation", "auto");
+        d.put("plugins.directory", "plugins");
+        d.put("plugins.watch", true);
+        d.put("config.watch", true);
+        d.put("server.host", "127.0.0.1");
+        d.put("server.port", 8080);
+        d.put("server.cacheSize", 4096);
+        d.put("server.maxBodyBytes", 64 * 1024);
+        d.put("server.maxBatchBytes", 8 * 1024 * 1024);
+        d.put("metrics.enabled", true);
+        d.put("metrics.sampleEvery", 16);
+        d.put("metrics.jmx", true);
+        d.put("engine.numericMode", "double");
+        d.put("engine.precision", 34);
+        return Collections.unmodifiableMap(d);
+    }
+
+    private void invalid(String key, Object value) {
+        System.err.println("Invalid " + key + ", using " + DEFAULTS.get(key) + ": " + value);
+    }
+
+    private String string(String key) {
+        Object value = values.get(key);
+        if (value instanceof String || value instanceof Number || value instanceof Boolean) {
+            return value.toString();
+        }
+        invalid(key, value);
+        return (String) DEFAULTS.get(key);
+    }
+
+    private int integer(String key, int min, int max) {
+        Object value = values.get(key);
+        if ((value instanceof Integer || value instanceof Long) && ((Number) value).longValue() >= min
+                && ((Number) value).longValue() <= max) {
+            return ((Number) value).intValue();
+        }
+        invalid(key, value);
+        return (Integer) DEFAULTS.get(key);
+    }
+
+    private boolean bool(String key) {
+        if (values.get(key) instanceof Boolean b) {
+            return b;
+        }
+        invalid(key, values.get(key));
+        return (Boolean) DEFAULTS.get(key);
+    }
+
+    private int color(String key) {
+        Object value = values.get(key);
+        if (value instanceof String hex) {
+            try {
+                return Integer.decode(hex) & 0xFFFFFF;
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+        }
+        invalid(key, value);
+        return Integer.decode((String) DEFAULTS.get(key));
+    }
+
+    private DoubleFormatter.Notation notation(String key) {
+        try {
+            return DoubleFormatter.Notation.parse(string(key));
+        } catch (IllegalArgumentException e) {
+            invalid(key, values.get(key));
+            return DoubleFormatter.Notation.parse((String) DEFAULTS.get(key));
+        }
+    }
+
+    private NumericMode numericMode(String key) {
+        try {
+            return NumericMode.parse(string(key));
+        } catch (IllegalArgumentException e) {
+            invalid(key, values.get(key));
+            return NumericMode.parse((String) DEFAULTS.get(key));
+        }
+    }
+
+    /**
+     * Gets a setting as it was read, for keys without a typed accessor.
+     *
+     * @param keyPath The dotted path of the setting, e.g.
+     *                {@code ui.window.title}.
+     * @param <T>     The type of the value.
+     * @return The value, or {@code null} if it is not set.
+     * @throws ClassCastException If the value is not a {@code T}.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String keyPath) {
+        return (T) values.get(keyPath);
+    }
+
+    /**
+     * Checks whether another snapshot has the same settings.
+     *
+     * @param other The other snapshot.
+     * @return {@code true} if every setting is equal.
+     */
+    public boolean sameAs(Config other) {
+        return values.equals(other.values);
+    }
+
+    /** @return {@code ui.window.title}. */
+    public String getWindowTitle() {
+        return windowTitle;
+    }
+
+    /** @return {@code ui.window.width}, in pixels. */
+    public int getWindowWidth() {
+        return windowWidth;
+    }
+
+    /** @return {@code ui.window.height}, in pixels. */
+    public int getWindowHeight() {
+        return windowHeight;
+    }
+
+    /** @return {@code ui.colors.background}, as {@code 0xRRGGBB}. */
+    public int getBackground() {
+        return background;
+    }
+
+    /** @return {@code ui.colors.keypad}, as {@code 0xRRGGBB}. */
+    public int getKeypad() {
+        return keypad;
+    }
+
+    /** @return {@code ui.colors.buttonText}, as {@code 0xRRGGBB}. */
+    public int getButtonText() {
+        return buttonText;
+    }
+
+    /** @return {@code ui.colors.buttonBackground}, as {@code 0xRRGGBB}. */
+    public int getButtonBackground() {
+        return buttonBackground;
+    }
+
+    /** @return {@code ui.colors.buttonHover}, as {@code 0xRRGGBB}. */
+    public int getButtonHover() {
+        return buttonHover;
+    }
+
+    /** @return {@code ui.labels.defaultResult}. */
+    public String getDefaultResult() {
+        return defaultResult;
+    }
+
+    /** @return {@code ui.live.debounceMs}. */
+    public int getDebounceMs() {
+        return debounceMs;
+    }
+
+    /** @return {@code ui.result.precision}; 0 for the shortest digits. */
+    public int getResultPrecision() {
+        return resultPrecision;
+    }
+
+    /** @return {@code ui.result.notation}. */
+    public DoubleFormatter.Notation getResultNotation() {
+        return resultNotation;
+    }
+
+    /** @return {@code plugins.directory}. */
+    public String getPluginsDirectory() {
+        return pluginsDirectory;
+    }
+
+    /** @return {@code plugins.watch}. */
+    public boolean isPluginsWatch() {
+        return pluginsWatch;
+    }
+
+    /** @return {@code config.watch}. */
+    public boolean isConfigWatch() {
+        return configWatch;
+    }
+
+    /** @return {@code server.host}. */
+    public String getServerHost() {
+        return serverHost;
+    }
+
+    /** @return {@code server.port}. */
+    public int getServerPort() {
+        return serverPort;
+    }
+
+    /** @return {@code server.cacheSize}. */
+    public int getServerCacheSize() {
+        return serverCacheSize;
+    }
+
+    /** @return {@code server.maxBodyBytes}. */
+    public int getServerMaxBodyBytes() {
+        return serverMaxBodyBytes;
+    }
+
+    /** @return {@code server.maxBatchBytes}. */
+    public int getServerMaxBatchBytes() {
+        return serverMaxBatchBytes;
+    }
+
+    /** @return {@code metrics.enabled}. */
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    /** @return {@code metrics.sampleEvery}. */
+    public int getMetricsSampleEvery() {
+        return metricsSampleEvery;
+    }
+
+    /** @return {@code metrics.jmx}. */
+    public boolean isMetricsJmx() {
+        return metricsJmx;
+    }
+
+    /** @return {@code engine.numericMode}. */
+    public NumericMode getNumericMode() {
+        return numericMode;
+    }
+
+    /** @return {@code engine.precision} significant digits, rounding half to even. */
+    public MathContext getMathContext() {
+        return mathContext;
+    }
+}
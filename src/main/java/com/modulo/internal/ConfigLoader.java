@@ -22,54 +22,96 @@ package com.modulo.internal;
  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
  * SOFTWARE.
  */
-import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.composer.Composer;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import org.yaml.snakeyaml.parser.ParserImpl;
+import org.yaml.snakeyaml.reader.StreamReader;
+import org.yaml.snakeyaml.reader.UnicodeReader;
+import org.yaml.snakeyaml.resolver.Resolver;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
 /**
- * Adapter class to adapt annotated functions to the {@link CalcFunction}
- * interface.
+ * Loads the application settings from {@code application.yml}.
+ * <p>
+ * The file is read from the path in the {@code modulator.config} system
+ * property, or else from the class path. It is parsed once into an immutable
+ * {@link Config} snapshot, which {@link #current()} returns without locking.
+ * </p>
  * <p>
- * This class wraps an object annotated with {@link Function} and exposes it as
- * a {@link CalcFunction}.
+ * When the file is on disk and {@code config.watch} is enabled,
+ * {@link #watch()} re-reads it whenever it changes and publishes the new
+ * snapshot with a single volatile write. A file that fails to parse keeps the
+ * previous snapshot in effect.
  * </p>
  */
 public class ConfigLoader {
 
-    private static final Map<String, Object> config;
-
-    static {
-        config = new java.util.HashMap<>();
-        // Default values
-        config.put("ui.window.title", "Modulator Calculator");
-        config.put("ui.window.width", 400);
-        config.put("ui.window.height", 600);
-        config.put("ui.colors.background", "#FFFFFF");
-        config.put("ui.colors.keypad", "#F0F0F0");
-        config.put("ui.colors.buttonText", "#000000");
-        config.put("ui.colors.buttonBackground", "#E0E0E0");
-        config.put("ui.colors.buttonHover", "#D0D0D0");
-        config.put("ui.labels.defaultResult", "= 0");
-
-        try (InputStream in = ConfigLoader.class.getClassLoader()
-                .getResourceAsStream("application.yml")) {
-            if (in != null) {
-                Yaml yaml = new Yaml();
-                Map<String, Object> loaded = yaml.load(in);
+    private static final String RESOURCE = "application.yml";
+
+    private static final Object lock = new Object();
+    private static final URL source = locate();
+    private static volatile Config current = initialLoad();
+    private static final List<Consumer<Config>> reloadListeners = new CopyOnWriteArrayList<>();
+    private static boolean watching;
+
+    private static URL locate() {
+        String path = System.getProperty("modulator.config");
+        if (path != null) {
+            try {
+                return Path.of(path).toAbsolutePath().toUri().toURL();
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Warning: Invalid modulator.config " + path + ", using " + RESOURCE + ". " + e.getMessage());
+            }
+        }
+        return ConfigLoader.class.getClassLoader().getResource(RESOURCE);
+    }
+
+    private static Config initialLoad() {
+        try {
+            return load();
+        } catch (Exception e) {
+            System.err.println("Warning: Failed to load " + RESOURCE + ", using defaults. " + e.getMessage());
+            return new Config(Map.of());
+        }
+    }
+
+    private static Config load() throws IOException {
+        Map<String, Object> flat = new HashMap<>();
+        if (source != null) {
+            try (InputStream in = source.openStream()) {
+                Map<String, Object> loaded = parse(in);
                 if (loaded != null) {
-                    merge(config, loaded);
+                    flattenAndPut("", loaded, flat);
                 }
             }
-        } catch (Exception e) {
-            System.err.println("Warning: Failed to load application.yml, using defaults. " + e.getMessage());
         }
+        return new Config(flat);
     }
 
-    private static void merge(Map<String, Object> target, Map<String, Object> source) {
-        // We want to flatten the source into the target for simplicity,
-        // or we just support both.
-        // Let's just flatten the source keys into dot notation and put them in target.
-        flattenAndPut("", source, target);
+    /**
+     * Reads a YAML document into plain maps, lists and scalars. The
+     * {@code Yaml} facade would also set up bean introspection, which needs
+     * {@code java.desktop} even in the headless modes.
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> parse(InputStream in) {
+        LoaderOptions options = new LoaderOptions();
+        SafeConstructor constructor = new SafeConstructor(options);
+        constructor.setComposer(new Composer(
+                new ParserImpl(new StreamReader(new UnicodeReader(in)), options), new Resolver(), options));
+        return (Map<String, Object>) constructor.getSingleData(Object.class);
     }
 
     @SuppressWarnings("unchecked")
@@ -84,25 +126,25 @@ public class ConfigLoader {
         }
     }
 
-    @SuppressWarnings("unchecked")
-    public static <T> T get(String keyPath) {
-        // First check if the key exists directly (from defaults or flattened config)
-        if (config.containsKey(keyPath)) {
-            return (T) config.get(keyPath);
-        }
-
-        // Fallback to traversing nested maps (if any exist and weren't flattened)
-        String[] parts = keyPath.split("\\.");
-        Object current = config;
+    /**
+     * Gets the settings in effect.
+     *
+     * @return The current snapshot.
+     */
+    public static Config current() {
+        return current;
+    }
 
-        for (String part : parts) {
-            if (!(current instanceof Map))
-                return null;
-            current = ((Map<String, Object>) current).get(part);
-            if (current == null)
-                return null;
-        }
-        return (T) current;
+    /**
+     * Gets a setting from the current snapshot.
+     *
+     * @param keyPath The dotted path of the setting.
+     * @param <T>     The type of the value.
+     * @return The value, or {@code null} if it is not set.
+     * @see Config#get(String)
+     */
+    public static <T> T get(String keyPath) {
+        return current.get(keyPath);
     }
 
     public static String getString(String path) {
@@ -116,4 +158,75 @@ public class ConfigLoader {
     public static String getColorHex(String path) {
         return get(path);
     }
+
+    /**
+     * Registers a callback that runs with every new snapshot. Reloads from
+     * the watcher call it on the watcher thread.
+     *
+     * @param listener The callback.
+     */
+    public static void addReloadListener(Consumer<Config> listener) {
+        reloadListeners.add(listener);
+    }
+
+    /**
+     * Starts watching the settings file for changes, if it is on disk and
+     * {@code config.watch} is enabled. Calling it again has no effect.
+     */
+    public static void watch() {
+        synchronized (lock) {
+            Path file = file();
+            if (watching || !current.isConfigWatch() || file == null) {
+                return;
+            }
+            try {
+                DirectoryWatcher.start("config-watcher", file.getParent(), file.getFileName()::equals,
+                        ConfigLoader::reload);
+                watching = true;
+            } catch (IOException e) {
+                System.err.println("Cannot watch " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Gets the settings file, if it can be watched.
+     *
+     * @return The file, or {@code null} if the settings come from a jar or
+     *         there are none.
+     */
+    static Path file() {
+        if (source == null || !"file".equals(source.getProtocol())) {
+            return null;
+        }
+        try {
+            Path file = Path.of(source.toURI());
+            return Files.isDirectory(file.getParent()) ? file : null;
+        } catch (URISyntaxException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Re-reads the settings file and publishes the new snapshot if anything
+     * changed, called by the {@link DirectoryWatcher} on its directory.
+     */
+    static void reload() {
+        Config loaded;
+        synchronized (lock) {
+            try {
+                loaded = load();
+            } catch (Exception e) {
+                System.err.println("Failed reloading " + source + ", keeping the current settings: " + e.getMessage());
+                return;
+            }
+            if (loaded.sameAs(current)) {
+                return;
+            }
+            current = loaded;
+        }
+        for (Consumer<Config> listener : reloadListeners) {
+            listener.accept(loaded);
+        }
+    }
 }
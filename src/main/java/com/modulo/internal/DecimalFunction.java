@@ -0,0 +1,66 @@
+package com.modulo.internal;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * A {@link CalcFunction} that can also compute in decimal arithmetic, for
+ * engines in the decimal and hybrid numeric modes.
+ * <p>
+ * Functions without a decimal implementation still work in those modes:
+ * their arguments are rounded to {@code double} and their result is taken as
+ * the shortest decimal that rounds to it.
+ * </p>
+ */
+public interface DecimalFunction extends CalcFunction {
+
+    /**
+     * Executes the function in decimal arithmetic.
+     *
+     * @param context The precision and rounding of the result.
+     * @param args    The input arguments.
+     * @return The result, rounded to {@code context}.
+     * @throws ArithmeticException If the result is undefined.
+     */
+    BigDecimal execute(MathContext context, BigDecimal... args);
+
+    /**
+     * Bounds the error of {@link #execute(double...)} for arguments that are
+     * exact, used by the hybrid mode to decide whether the {@code double}
+     * result can be kept.
+     * <p>
+     * The default is infinite, so the hybrid mode always recomputes calls in
+     * decimal. A function that rounds correctly can return half an ulp of the
+     * result, or {@code 0} when it can tell the result is exact.
+     * </p>
+     *
+     * @param result The result of the {@code double} execution.
+     * @param args   The arguments it was executed with.
+     * @return The largest possible absolute error of {@code result}.
+     */
+    default double errorBound(double result, double... args) {
+        return Double.POSITIVE_INFINITY;
+    }
+}
@@ -0,0 +1,117 @@
+package com.modulo.internal;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Watches a directory on a background thread and runs a callback when files
+ * matching a filter are created, modified or deleted.
+ * <p>
+ * Copying a jar or saving a file through an editor produces a burst of
+ * events, so changes are only acted on once the directory has been quiet for
+ * {@link #QUIET_MILLIS}. An overflow, where events were lost, always counts as
+ * a change.
+ * </p>
+ */
+public final class DirectoryWatcher implements Runnable {
+
+    private static final long QUIET_MILLIS = 300;
+
+    private final Path directory;
+    private final WatchService watchService;
+    private final Predicate<Path> filter;
+    private final Runnable onChange;
+
+    private DirectoryWatcher(Path directory, WatchService watchService, Predicate<Path> filter, Runnable onChange) {
+        this.directory = directory;
+        this.watchService = watchService;
+        this.filter = filter;
+        this.onChange = onChange;
+    }
+
+    /**
+     * Starts watching a directory on a background thread.
+     *
+     * @param name      The name of the watcher thread.
+     * @param directory The directory to watch.
+     * @param filter    Selects the file names, relative to the directory,
+     *                  whose changes matter.
+     * @param onChange  The callback, run on the watcher thread.
+     * @throws IOException If the directory cannot be watched.
+     */
+    public static void start(String name, Path directory, Predicate<Path> filter, Runnable onChange)
+            throws IOException {
+        WatchService watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        Thread.ofVirtual().name(name).start(new DirectoryWatcher(directory, watchService, filter, onChange));
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean relevant = drain(key);
+                // Wait for the burst of events to settle before acting on it
+                while ((key = watchService.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    relevant |= drain(key);
+                }
+                if (relevant) {
+                    try {
+                        onChange.run();
+                    } catch (RuntimeException e) {
+                        System.err.println("Failed handling changes in " + directory + ": " + e.getMessage());
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Shutting down
+        }
+    }
+
+    private boolean drain(WatchKey key) {
+        boolean relevant = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                relevant = true;
+            } else if (event.context() instanceof Path p && filter.test(p)) {
+                relevant = true;
+            }
+        }
+        key.reset();
+        return relevant;
+    }
+}
@@ -47,4 +47,37 @@ public @interface Function {
      * @return The insert text.
      */
     String insert();
+
+    /**
+     * Whether the function is pure, i.e. its result depends only on its
+     * arguments. Results of pure functions are cached, and calls with
+     * constant arguments are evaluated when the expression is parsed.
+     *
+     * @return {@code true} if results may be cached.
+     * @see CalcFunction#isPure()
+     */
+    boolean pure() default false;
+
+    /**
+     * The maximum number of cached results of a pure function, or {@code 0}
+     * for a pure function that is cheaper to call than to look up.
+     *
+     * @return The cache size.
+     */
+    int cacheSize() default 4096;
+
+    /**
+     * Which cached result makes room for a new one.
+     *
+     * @return The eviction strategy.
+     */
+    CachePolicy.Eviction eviction() default CachePolicy.Eviction.LRU;
+
+    /**
+     * How long a cached result stays valid, in milliseconds, or {@code 0} for
+     * no expiry.
+     *
+     * @return The time to live.
+     */
+    long ttlMillis() default 0;
 }
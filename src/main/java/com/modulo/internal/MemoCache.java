@@ -0,0 +1,266 @@
+package com.modulo.internal;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Concurrent result cache for a pure function of up to three arguments.
+ * <p>
+ * Keys are stored as the raw bits of the {@code double} arguments in primitive
+ * arrays, so lookups neither box nor allocate. The cache is set-associative:
+ * an argument tuple hashes to one set of {@link #WAYS} slots and is evicted
+ * only in favour of tuples that hash to the same set. Sets are guarded by a
+ * fixed number of {@link StampedLock} stripes; hits are served with an
+ * optimistic read and never block.
+ * </p>
+ */
+public final class MemoCache {
+
+    /** Slots per set. */
+    static final int WAYS = 4;
+
+    private static final int MAX_STRIPES = 64;
+
+    private final int arity;
+    private final boolean lru;
+    private final long ttlNanos;
+    private final int setMask;
+    private final StampedLock[] stripes;
+    private final int stripeMask;
+
+    // Slot i occupies keys[i * arity .. i * arity + arity - 1]
+    private final long[] keys;
+    private final double[] values;
+    private final long[] ages;   // 0 = empty; higher = more recently used (LRU) or added (FIFO)
+    private final long[] born;   // insertion time, only with a TTL
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder size = new LongAdder();
+
+    /**
+     * Snapshot of the cache counters.
+     *
+     * @param hits      Lookups answered from the cache.
+     * @param misses    Lookups that had to call the function.
+     * @param evictions Entries replaced to make room.
+     * @param size      Entries currently cached.
+     * @param capacity  The maximum number of entries.
+     */
+    public record Stats(long hits, long misses, long evictions, long size, int capacity) {
+
+        /**
+         * Gets the fraction of lookups answered from the cache.
+         *
+         * @return The hit rate between 0 and 1, or 0 if there were no lookups.
+         */
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    }
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param policy The size, eviction and expiry policy.
+     * @param arity  The number of arguments, between 1 and 3.
+     */
+    MemoCache(CachePolicy policy, int arity) {
+        if (arity < 1 || arity > 3) {
+            throw new IllegalArgumentException("arity must be between 1 and 3: " + arity);
+        }
+        int capacity = Math.max(WAYS, Integer.highestOneBit(policy.maxEntries() - 1) << 1);
+        int sets = capacity / WAYS;
+        this.arity = arity;
+        this.lru = policy.eviction() == CachePolicy.Eviction.LRU;
+        this.ttlNanos = policy.ttlMillis() * 1_000_000L;
+        this.setMask = sets - 1;
+        this.stripes = new StampedLock[Math.min(sets, MAX_STRIPES)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new StampedLock();
+        }
+        this.stripeMask = stripes.length - 1;
+        this.keys = new long[capacity * arity];
+        this.values = new double[capacity];
+        this.ages = new long[capacity];
+        this.born = ttlNanos > 0 ? new long[capacity] : null;
+    }
+
+    /**
+     * Returns the cached result for the arguments, computing and caching it on
+     * a miss. Unused trailing arguments must be passed as {@code 0}.
+     *
+     * @param function Computes the result on a miss.
+     */
+    double get(MemoizedFunction function, double a, double b, double c) {
+        long ka = Double.doubleToRawLongBits(a);
+        long kb = Double.doubleToRawLongBits(b);
+        long kc = Double.doubleToRawLongBits(c);
+        int set = hash(ka, kb, kc) & setMask;
+        StampedLock lock = stripes[set & stripeMask];
+        long now = born != null ? System.nanoTime() : 0;
+
+        long stamp = lock.tryOptimisticRead();
+        int slot = find(set, ka, kb, kc, now);
+        double value = slot >= 0 ? values[slot] : 0;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                slot = find(set, ka, kb, kc, now);
+                value = slot >= 0 ? values[slot] : 0;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        if (slot >= 0) {
+            if (lru) {
+                // Racy on purpose: a lost update only makes the eviction order approximate
+                touch(set, slot);
+            }
+            hits.increment();
+            return value;
+        }
+
+        misses.increment();
+        value = function.compute(a, b, c);
+        stamp = lock.writeLock();
+        try {
+            store(set, ka, kb, kc, value, now);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return value;
+    }
+
+    private int find(int set, long ka, long kb, long kc, long now) {
+        int base = set * WAYS;
+        for (int i = base; i < base + WAYS; i++) {
+            if (ages[i] != 0 && matches(i, ka, kb, kc) && !isExpired(i, now)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean matches(int slot, long ka, long kb, long kc) {
+        int k = slot * arity;
+        return switch (arity) {
+            case 1 -> keys[k] == ka;
+            case 2 -> keys[k] == ka && keys[k + 1] == kb;
+            default -> keys[k] == ka && keys[k + 1] == kb && keys[k + 2] == kc;
+        };
+    }
+
+    private boolean isExpired(int slot, long now) {
+        return born != null && now - born[slot] >= ttlNanos;
+    }
+
+    private void touch(int set, int slot) {
+        ages[slot] = newestAge(set) + 1;
+    }
+
+    private long newestAge(int set) {
+        int base = set * WAYS;
+        long max = 0;
+        for (int i = base; i < base + WAYS; i++) {
+            max = Math.max(max, ages[i]);
+        }
+        return max;
+    }
+
+    private void store(int set, long ka, long kb, long kc, double value, long now) {
+        int base = set * WAYS;
+        int victim = -1;
+        for (int i = base; i < base + WAYS; i++) {
+            if (ages[i] == 0 || isExpired(i, now) || matches(i, ka, kb, kc)) {
+                // A free, stale or concurrently filled slot
+                victim = i;
+                break;
+            }
+        }
+        if (victim < 0) {
+            victim = base;
+            for (int i = base + 1; i < base + WAYS; i++) {
+                if (ages[i] < ages[victim]) {
+                    victim = i;
+                }
+            }
+            evictions.increment();
+        } else if (ages[victim] == 0) {
+            size.increment();
+        }
+
+        int k = victim * arity;
+        keys[k] = ka;
+        if (arity > 1) {
+            keys[k + 1] = kb;
+        }
+        if (arity > 2) {
+            keys[k + 2] = kc;
+        }
+        values[victim] = value;
+        if (born != null) {
+            born[victim] = now;
+        }
+        ages[victim] = newestAge(set) + 1;
+    }
+
+    private static int hash(long a, long b, long c) {
+        long h = a + 31 * (b + 31 * c);
+        // Small integers only differ in the high bits of a double; mix them down
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return (int) (h ^ (h >>> 33));
+    }
+
+    /**
+     * Drops all cached results. The counters are kept.
+     */
+    public void clear() {
+        for (StampedLock lock : stripes) {
+            lock.asWriteLock().lock();
+        }
+        try {
+            Arrays.fill(ages, 0);
+            size.reset();
+        } finally {
+            for (StampedLock lock : stripes) {
+                lock.asWriteLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Gets the current counters.
+     *
+     * @return A snapshot of the statistics.
+     */
+    public Stats getStats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), size.sum(), values.length);
+    }
+}
@@ -0,0 +1,43 @@
+package com.modulo.internal;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+/**
+ * A {@link MemoizedFunction} of an {@link ArrayFunction}. Single calls are
+ * cached; columns go straight to the function, because looking up every
+ * element would cost more than the loop the column path exists for.
+ */
+final class MemoizedArrayFunction extends MemoizedFunction implements ArrayFunction {
+
+    private final ArrayFunction array;
+
+    MemoizedArrayFunction(CalcFunction delegate, int arity, CachePolicy policy) {
+        super(delegate, arity, policy);
+        this.array = (ArrayFunction) delegate;
+    }
+
+    @Override
+    public void executeArray(double[][] args, double[] out, int length) {
+        array.executeArray(args, out, length);
+    }
+}
@@ -0,0 +1,180 @@
+package com.modulo.internal;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+/**
+ * Wraps a pure function with a {@link MemoCache}.
+ * <p>
+ * The registry wraps functions when it loads them, so the cache lives exactly
+ * as long as the function instance: it survives new registry snapshots and is
+ * dropped together with the function when its plugin is reloaded.
+ * </p>
+ * <p>
+ * Only functions taking one to three arguments are cached; see
+ * {@link #wrapIfPure(CalcFunction)}. An {@link ArrayFunction} keeps its
+ * column path.
+ * </p>
+ */
+public class MemoizedFunction
+        implements UnaryFunction, BinaryFunction, TernaryFunction {
+
+    private final CalcFunction delegate;
+    private final int arity;
+    private final MemoCache cache;
+
+    // The delegate's fixed-arity view, when it has one
+    private final UnaryFunction unary;
+    private final BinaryFunction binary;
+    private final TernaryFunction ternary;
+
+    MemoizedFunction(CalcFunction delegate, int arity, CachePolicy policy) {
+        this.delegate = delegate;
+        this.arity = arity;
+        this.cache = new MemoCache(policy, arity);
+        this.unary = arity == 1 && delegate instanceof UnaryFunction u ? u : null;
+        this.binary = arity == 2 && delegate instanceof BinaryFunction b ? b : null;
+        this.ternary = arity == 3 && delegate instanceof TernaryFunction t ? t : null;
+    }
+
+    /**
+     * Adds a result cache to a function that declares itself
+     * {@linkplain CalcFunction#isPure() pure}.
+     *
+     * @param function The function.
+     * @return A caching wrapper, or the function itself if it is not pure, its
+     *         cache is disabled or it does not take one to three arguments.
+     * @throws IllegalArgumentException If the function's cache policy is
+     *                                  invalid.
+     */
+    public static CalcFunction wrapIfPure(CalcFunction function) {
+        if (!function.isPure() || function instanceof MemoizedFunction) {
+            return function;
+        }
+        int arity = function.getArgCount();
+        if (arity < 1 || arity > 3) {
+            return function;
+        }
+        CachePolicy policy = function.getCachePolicy();
+        if (policy == null) {
+            policy = CachePolicy.DEFAULT;
+        }
+        if (policy.maxEntries() == 0) {
+            return function;
+        }
+        return function instanceof ArrayFunction
+                ? new MemoizedArrayFunction(function, arity, policy)
+                : new MemoizedFunction(function, arity, policy);
+    }
+
+    /**
+     * Gets the wrapped function.
+     *
+     * @return The function whose results are cached.
+     */
+    public CalcFunction getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Gets the hit, miss and eviction counters of this function's cache.
+     *
+     * @return The cache statistics.
+     */
+    public MemoCache.Stats getCacheStats() {
+        return cache.getStats();
+    }
+
+    /**
+     * Drops all cached results.
+     */
+    public void clearCache() {
+        cache.clear();
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public String getInsertText() {
+        return delegate.getInsertText();
+    }
+
+    @Override
+    public int getArgCount() {
+        return arity;
+    }
+
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
+    @Override
+    public CachePolicy getCachePolicy() {
+        return delegate.getCachePolicy();
+    }
+
+    @Override
+    public double execute(double... args) {
+        return switch (args.length == arity ? arity : -1) {
+            case 1 -> cache.get(this, args[0], 0, 0);
+            case 2 -> cache.get(this, args[0], args[1], 0);
+            case 3 -> cache.get(this, args[0], args[1], args[2]);
+            // Let the function report the arity error itself
+            default -> delegate.execute(args);
+        };
+    }
+
+    @Override
+    public double execute(double x) {
+        return arity == 1 ? cache.get(this, x, 0, 0) : execute(new double[] { x });
+    }
+
+    @Override
+    public double execute(double a, double b) {
+        return arity == 2 ? cache.get(this, a, b, 0) : execute(new double[] { a, b });
+    }
+
+    @Override
+    public double execute(double a, double b, double c) {
+        return arity == 3 ? cache.get(this, a, b, c) : execute(new double[] { a, b, c });
+    }
+
+    /**
+     * Calls the wrapped function on a cache miss.
+     */
+    double compute(double a, double b, double c) {
+        return switch (arity) {
+            case 1 -> unary != null ? unary.execute(a) : delegate.execute(a);
+            case 2 -> binary != null ? binary.execute(a, b) : delegate.execute(a, b);
+            default -> ternary != null ? ternary.execute(a, b, c) : delegate.execute(a, b, c);
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "memoized " + delegate;
+    }
+}
@@ -0,0 +1,117 @@
+package com.modulo.jfr;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event for evaluating a parsed expression, once or over a
+ * batch of rows.
+ * <p>
+ * Disabled unless a recording turns it on. The threshold applies to the
+ * whole call, so a batch is recorded if all its rows together take longer.
+ * </p>
+ */
+@Name("com.modulo.Evaluate")
+@Label("Expression Evaluation")
+@Category("Modulator")
+@Description("Evaluation of a parsed expression")
+@Enabled(false)
+@Threshold("1 ms")
+@StackTrace(false)
+public final class EvaluateEvent extends Event {
+
+    /** Status of an evaluation that returned a number. */
+    public static final String OK = "ok";
+    /** Status of an evaluation that returned NaN. */
+    public static final String NAN = "NaN";
+    /** Status of an evaluation that returned an infinity. */
+    public static final String INFINITE = "infinite";
+    /** Status of an evaluation that threw an exception. */
+    public static final String ERROR = "error";
+
+    @Label("Expression")
+    String expression;
+
+    @Label("Rows")
+    @Description("Number of variable sets evaluated")
+    int rows;
+
+    @Label("Status")
+    @Description("ok, NaN, infinite or error; the status of the last row for a batch")
+    String status;
+
+    /**
+     * Ends the event and commits it if it is enabled and over the threshold.
+     *
+     * @param source The expression text.
+     * @param rows   The number of rows evaluated.
+     * @param status One of {@link #OK}, {@link #NAN}, {@link #INFINITE} and
+     *               {@link #ERROR}.
+     */
+    public void emit(String source, int rows, String status) {
+        end();
+        if (shouldCommit()) {
+            this.expression = source;
+            this.rows = rows;
+            this.status = status;
+            commit();
+        }
+    }
+
+    /**
+     * Ends the event for a result.
+     *
+     * @param source The expression text.
+     * @param result The result of the evaluation.
+     */
+    public void emit(String source, double result) {
+        end();
+        if (shouldCommit()) {
+            this.expression = source;
+            this.rows = 1;
+            this.status = statusOf(result);
+            commit();
+        }
+    }
+
+    /**
+     * Classifies a result.
+     *
+     * @param result The result of an evaluation.
+     * @return {@link #OK}, {@link #NAN} or {@link #INFINITE}.
+     */
+    public static String statusOf(double result) {
+        if (Double.isNaN(result)) {
+            return NAN;
+        }
+        return Double.isInfinite(result) ? INFINITE : OK;
+    }
+}
@@ -0,0 +1,84 @@
+package com.modulo.jfr;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event for one call of a registered function.
+ * <p>
+ * Disabled unless a recording turns it on. Most calls take nanoseconds, so
+ * only calls over the threshold are committed; below it the event costs two
+ * clock reads.
+ * </p>
+ */
+@Name("com.modulo.FunctionCall")
+@Label("Function Call")
+@Category("Modulator")
+@Description("Execution of a calculator function")
+@Enabled(false)
+@Threshold("100 us")
+@StackTrace(false)
+public final class FunctionEvent extends Event {
+
+    @Label("Function")
+    String function;
+
+    @Label("Arity")
+    @Description("Number of arguments passed; for a column call, the number of argument columns")
+    int arity;
+
+    @Label("Rows")
+    @Description("Number of calls made at once; more than 1 for a column call")
+    int rows;
+
+    @Label("Failed")
+    @Description("Whether the call threw an exception")
+    boolean failed;
+
+    /**
+     * Ends the event and commits it if it is enabled and over the threshold.
+     *
+     * @param name   The function name.
+     * @param arity  The number of arguments.
+     * @param rows   The number of calls made at once.
+     * @param failed Whether the call threw an exception.
+     */
+    public void emit(String name, int arity, int rows, boolean failed) {
+        end();
+        if (shouldCommit()) {
+            this.function = name;
+            this.arity = arity;
+            this.rows = rows;
+            this.failed = failed;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.modulo.jfr;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event for parsing one expression.
+ * <p>
+ * Disabled unless a recording turns it on, e.g. with the
+ * {@code jfr/modulator.jfc} the build writes next to the jar. The parser
+ * brackets every parse like this:
+ * </p>
+ *
+ * <pre>
+ * ParseEvent event = new ParseEvent();
+ * event.begin();
+ * ...
+ * event.emit(source, expression.getNodeCount(), null);
+ * </pre>
+ */
+@Name("com.modulo.Parse")
+@Label("Expression Parse")
+@Category("Modulator")
+@Description("Parsing and optimization of an expression")
+@Enabled(false)
+@Threshold("1 ms")
+@StackTrace(false)
+public final class ParseEvent extends Event {
+
+    @Label("Expression")
+    String expression;
+
+    @Label("Length")
+    @Description("Length of the expression text")
+    int length;
+
+    @Label("Node Count")
+    @Description("Nodes of the parsed and optimized tree; 0 if parsing failed")
+    int nodes;
+
+    @Label("Error")
+    @Description("Why the expression was rejected, or null")
+    String error;
+
+    /**
+     * Ends the event and commits it if it is enabled and over the threshold.
+     *
+     * @param source The expression text.
+     * @param nodes  The node count of the parsed tree.
+     * @param error  The error message if parsing failed, or {@code null}.
+     */
+    public void emit(String source, int nodes, String error) {
+        end();
+        if (shouldCommit()) {
+            this.expression = source;
+            this.length = source.length();
+            this.nodes = nodes;
+            this.error = error;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.modulo.jfr;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import com.modulo.internal.ArrayFunction;
+import com.modulo.internal.BinaryFunction;
+import com.modulo.internal.CachePolicy;
+import com.modulo.internal.CalcFunction;
+import com.modulo.internal.NullaryFunction;
+import com.modulo.internal.TernaryFunction;
+import com.modulo.internal.UnaryFunction;
+
+/**
+ * Records the calls of a function as {@link FunctionEvent}s.
+ * <p>
+ * The registry wraps every function it loads in one, outermost, whether or
+ * not metrics are enabled. Unless a flight recording enables the event, a
+ * call costs two clock reads more. The wrapper keeps the function's arity and
+ * calls its fixed-arity or {@link ArrayFunction} view when it has one.
+ * </p>
+ */
+public class RecordedFunction
+        implements NullaryFunction, UnaryFunction, BinaryFunction, TernaryFunction {
+
+    final CalcFunction delegate;
+    final String name;
+    private final int arity;
+
+    // The delegate's fixed-arity view, when it has one
+    private final NullaryFunction nullary;
+    private final UnaryFunction unary;
+    private final BinaryFunction binary;
+    private final TernaryFunction ternary;
+
+    RecordedFunction(CalcFunction delegate) {
+        this.delegate = delegate;
+        this.name = delegate.getName();
+        this.arity = delegate.getArgCount();
+        this.nullary = arity == 0 && delegate instanceof NullaryFunction n ? n : null;
+        this.unary = arity == 1 && delegate instanceof UnaryFunction u ? u : null;
+        this.binary = arity == 2 && delegate instanceof BinaryFunction b ? b : null;
+        this.ternary = arity == 3 && delegate instanceof TernaryFunction t ? t : null;
+    }
+
+    /**
+     * Adds flight recorder events to a function.
+     *
+     * @param function The function.
+     * @return A recording wrapper, or the function itself if it is one already.
+     */
+    public static CalcFunction wrap(CalcFunction function) {
+        if (function instanceof RecordedFunction) {
+            return function;
+        }
+        return function instanceof ArrayFunction
+                ? new RecordedArrayFunction(function)
+                : new RecordedFunction(function);
+    }
+
+    /**
+     * Gets the wrapped function.
+     *
+     * @return The function being recorded.
+     */
+    public CalcFunction getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public String getInsertText() {
+        return delegate.getInsertText();
+    }
+
+    @Override
+    public int getArgCount() {
+        return arity;
+    }
+
+    @Override
+    public boolean isPure() {
+        return delegate.isPure();
+    }
+
+    @Override
+    public CachePolicy getCachePolicy() {
+        return delegate.getCachePolicy();
+    }
+
+    @Override
+    public double execute(double... args) {
+        FunctionEvent event = new FunctionEvent();
+        event.begin();
+        try {
+            double result = delegate.execute(args);
+            event.emit(name, args.length, 1, false);
+            return result;
+        } catch (RuntimeException e) {
+            event.emit(name, args.length, 1, true);
+            throw e;
+        }
+    }
+
+    @Override
+    public double execute() {
+        FunctionEvent event = new FunctionEvent();
+        event.begin();
+        try {
+            double result = nullary != null ? nullary.execute() : delegate.execute();
+            event.emit(name, 0, 1, false);
+            return result;
+        } catch (RuntimeException e) {
+            event.emit(name, 0, 1, true);
+            throw e;
+        }
+    }
+
+    @Override
+    public double execute(double x) {
+        FunctionEvent event = new FunctionEvent();
+        event.begin();
+        try {
+            double result = unary != null ? unary.execute(x) : delegate.execute(x);
+            event.emit(name, 1, 1, false);
+            return result;
+        } catch (RuntimeException e) {
+            event.emit(name, 1, 1, true);
+            throw e;
+        }
+    }
+
+    @Override
+    public double execute(double a, double b) {
+        FunctionEvent event = new FunctionEvent();
+        event.begin();
+        try {
+            double result = binary != null ? binary.execute(a, b) : delegate.execute(a, b);
+            event.emit(name, 2, 1, false);
+            return result;
+        } catch (RuntimeException e) {
+            event.emit(name, 2, 1, true);
+            throw e;
+        }
+    }
+
+    @Override
+    public double execute(double a, double b, double c) {
+        FunctionEvent event = new FunctionEvent();
+        event.begin();
+        try {
+            double result = ternary != null ? ternary.execute(a, b, c) : delegate.execute(a, b, c);
+            event.emit(name, 3, 1, false);
+            return result;
+        } catch (RuntimeException e) {
+            event.emit(name, 3, 1, true);
+            throw e;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "recorded " + delegate;
+    }
+}
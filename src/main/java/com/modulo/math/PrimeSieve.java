@@ -0,0 +1,304 @@
+package com.modulo.math;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Growable prime table built with a segmented sieve of Eratosthenes.
+ * <p>
+ * The table stores one bit per odd number, so primes below 10<sup>9</sup> fit
+ * in about 60 MB. It grows on demand: a query beyond the sieved range extends
+ * the table, at least doubling it, and sieves only the new range. Large
+ * extensions are split into cache-sized segments that are sieved in parallel
+ * on the common fork-join pool. Per-block prime counts make
+ * {@link #nthPrime(int)} a binary search plus a short scan.
+ * </p>
+ * <p>
+ * Instances are thread-safe. Queries read an immutable table without locking;
+ * growth is serialized and publishes a new table when done.
+ * </p>
+ */
+public final class PrimeSieve {
+
+    /** The largest supported {@link #nthPrime(int)} index. */
+    public static final int MAX_INDEX = 50_000_000;
+
+    /** Numbers below this bound can be tested by {@link #isPrime(long)}. */
+    public static final long MAX_LIMIT = 1L << 30;
+
+    // Each word holds 64 odd numbers, i.e. covers 128 integers
+    private static final int NUMBERS_PER_WORD = 128;
+    private static final int BLOCK_WORDS = 16;
+    private static final long NUMBERS_PER_BLOCK = (long) NUMBERS_PER_WORD * BLOCK_WORDS;
+    // 32 KiB of bits per segment, about the size of an L1 data cache
+    private static final int SEGMENT_WORDS = 4096;
+    private static final long INITIAL_LIMIT = 1 << 16;
+
+    private static final PrimeSieve SHARED = new PrimeSieve();
+
+    private volatile Table table;
+
+    /**
+     * Creates a sieve with a small initial table.
+     */
+    public PrimeSieve() {
+        table = Table.EMPTY.grow(INITIAL_LIMIT);
+    }
+
+    /**
+     * Gets the process-wide sieve, whose table is shared by all its users.
+     *
+     * @return The shared sieve.
+     */
+    public static PrimeSieve shared() {
+        return SHARED;
+    }
+
+    /**
+     * Finds the n-th prime, counting from {@code nthPrime(1) == 2}.
+     *
+     * @param n The index of the prime, between 1 and {@link #MAX_INDEX}.
+     * @return The n-th prime.
+     * @throws IllegalArgumentException If {@code n} is out of range.
+     */
+    public long nthPrime(int n) {
+        if (n < 1 || n > MAX_INDEX) {
+            throw new IllegalArgumentException("Prime index must be between 1 and " + MAX_INDEX + ": " + n);
+        }
+        if (n == 1) {
+            return 2;
+        }
+        Table t = table;
+        if (t.count() < n) {
+            t = ensure(upperBoundOfNthPrime(n));
+        }
+        return t.nth(n);
+    }
+
+    /**
+     * Tests whether a number is prime, growing the table to cover it if needed.
+     *
+     * @param x The number, below {@link #MAX_LIMIT}.
+     * @return {@code true} if {@code x} is prime.
+     * @throws IllegalArgumentException If {@code x} is too large.
+     */
+    public boolean isPrime(long x) {
+        if (x < 2) {
+            return false;
+        }
+        if (x >= MAX_LIMIT) {
+            throw new IllegalArgumentException("Primality is only supported below " + MAX_LIMIT + ": " + x);
+        }
+        if ((x & 1) == 0) {
+            return x == 2;
+        }
+        Table t = table;
+        if (x >= t.limit()) {
+            t = ensure(x + 1);
+        }
+        return t.isOddPrime(x);
+    }
+
+    /**
+     * Gets the bound below which primes have been sieved so far.
+     *
+     * @return The exclusive upper bound of the table.
+     */
+    public long sievedLimit() {
+        return table.limit();
+    }
+
+    /**
+     * Grows the table to cover numbers below {@code limit}.
+     */
+    private synchronized Table ensure(long limit) {
+        Table t = table;
+        if (limit > t.limit()) {
+            // At least double, so a run of increasing queries costs amortized linear time
+            t = t.grow(Math.min(MAX_LIMIT, Math.max(limit, 2 * t.limit())));
+            table = t;
+        }
+        return t;
+    }
+
+    /**
+     * Upper bound for the n-th prime (Rosser's theorem; valid for n >= 6).
+     */
+    private static long upperBoundOfNthPrime(int n) {
+        if (n < 6) {
+            return 14;
+        }
+        double ln = Math.log(n);
+        return (long) Math.ceil(n * (ln + Math.log(ln))) + 1;
+    }
+
+    /**
+     * An immutable sieved range.
+     *
+     * @param composite One bit per odd number {@code 2i+1}; set if not prime.
+     * @param counts    {@code counts[b]} is the number of primes below block
+     *                  {@code b}, including 2.
+     */
+    private record Table(long[] composite, int[] counts) {
+
+        static final Table EMPTY = new Table(new long[0], new int[] { 0 });
+
+        long limit() {
+            return (long) composite.length * NUMBERS_PER_WORD;
+        }
+
+        int count() {
+            return counts[counts.length - 1];
+        }
+
+        boolean isOddPrime(long x) {
+            long bit = x >>> 1;
+            return (composite[(int) (bit >>> 6)] & (1L << bit)) == 0;
+        }
+
+        long nth(int n) {
+            // Last block that starts with fewer than n primes below it
+            int lo = 0;
+            int hi = counts.length - 1;
+            while (lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if (counts[mid] < n) {
+                    lo = mid;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            int remaining = n - counts[lo];
+            for (int w = lo * BLOCK_WORDS; ; w++) {
+                long primes = ~composite[w];
+                int c = Long.bitCount(primes);
+                if (remaining > c) {
+                    remaining -= c;
+                    continue;
+                }
+                for (int i = 1; i < remaining; i++) {
+                    primes &= primes - 1;
+                }
+                long bit = (long) w * 64 + Long.numberOfTrailingZeros(primes);
+                return 2 * bit + 1;
+            }
+        }
+
+        /**
+         * Returns a table covering numbers below {@code limit}, rounded up to
+         * whole blocks, sieving only the part this table does not cover.
+         */
+        Table grow(long limit) {
+            int blocks = (int) ((limit + NUMBERS_PER_BLOCK - 1) / NUMBERS_PER_BLOCK);
+            int oldWords = composite.length;
+            long[] words = Arrays.copyOf(composite, blocks * BLOCK_WORDS);
+            long newLimit = (long) words.length * NUMBERS_PER_WORD;
+
+            // Base primes up to sqrt(newLimit); the old table covers them once it
+            // is past the initial size, otherwise sieve them from scratch first
+            int root = (int) Math.sqrt((double) newLimit) + 1;
+            int[] basePrimes = (long) root < limit() ? oddPrimesBelow(root) : smallOddPrimes(root);
+
+            int segments = (words.length - oldWords + SEGMENT_WORDS - 1) / SEGMENT_WORDS;
+            IntStream range = IntStream.range(0, segments);
+            if (segments > 1) {
+                range = range.parallel();
+            }
+            range.forEach(s -> {
+                int from = oldWords + s * SEGMENT_WORDS;
+                int to = Math.min(words.length, from + SEGMENT_WORDS);
+                sieveSegment(words, from, to, basePrimes);
+            });
+            if (oldWords == 0) {
+                words[0] |= 1L; // 1 is not prime
+            }
+
+            int[] newCounts = Arrays.copyOf(counts, blocks + 1);
+            int oldBlocks = counts.length - 1;
+            if (oldBlocks == 0) {
+                newCounts[0] = 1; // the prime 2
+            }
+            for (int b = oldBlocks; b < blocks; b++) {
+                int c = 0;
+                for (int w = b * BLOCK_WORDS; w < (b + 1) * BLOCK_WORDS; w++) {
+                    c += Long.bitCount(~words[w]);
+                }
+                newCounts[b + 1] = newCounts[b] + c;
+            }
+            return new Table(words, newCounts);
+        }
+
+        private int[] oddPrimesBelow(int bound) {
+            int[] primes = new int[Math.max(16, (int) (1.3 * bound / Math.log(bound)))];
+            int n = 0;
+            for (int x = 3; x < bound; x += 2) {
+                if (isOddPrime(x)) {
+                    primes[n++] = x;
+                }
+            }
+            return Arrays.copyOf(primes, n);
+        }
+
+        /**
+         * Plain sieve for the base primes of the very first table.
+         */
+        private static int[] smallOddPrimes(int bound) {
+            boolean[] composite = new boolean[bound];
+            int[] primes = new int[bound];
+            int n = 0;
+            for (int x = 3; x < bound; x += 2) {
+                if (!composite[x]) {
+                    primes[n++] = x;
+                    for (long m = (long) x * x; m < bound; m += 2L * x) {
+                        composite[(int) m] = true;
+                    }
+                }
+            }
+            return Arrays.copyOf(primes, n);
+        }
+
+        /**
+         * Marks the odd composites in {@code words[from..to)}.
+         */
+        private static void sieveSegment(long[] words, int from, int to, int[] basePrimes) {
+            long lo = (long) from * NUMBERS_PER_WORD;
+            long hi = (long) to * NUMBERS_PER_WORD;
+            for (int p : basePrimes) {
+                long p2 = (long) p * p;
+                if (p2 >= hi) {
+                    break;
+                }
+                // First odd multiple of p that is >= max(p^2, lo)
+                long m = Math.max(p2, (lo + p - 1) / p * p);
+                if ((m & 1) == 0) {
+                    m += p;
+                }
+                for (long bit = m >>> 1; bit < hi >>> 1; bit += p) {
+                    words[(int) (bit >>> 6)] |= 1L << bit;
+                }
+            }
+        }
+    }
+}
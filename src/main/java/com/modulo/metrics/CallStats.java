@@ -0,0 +1,184 @@
+package com.modulo.metrics;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call, error and latency counters of one function or engine operation.
+ * <p>
+ * Every call is counted on a striped {@link LongAdder}, so concurrent
+ * evaluators do not contend, but only a random sample of one call in
+ * {@code sampleEvery} is timed: reading the clock costs more than many of the
+ * calls being measured. Instrumented code brackets a call like this:
+ * </p>
+ *
+ * <pre>
+ * long start = stats.start();
+ * try {
+ *     double result = ...;
+ *     stats.stop(start);
+ *     return result;
+ * } catch (RuntimeException e) {
+ *     stats.fail();
+ *     throw e;
+ * }
+ * </pre>
+ */
+public final class CallStats implements CallStatsMXBean {
+
+    /** Returned by {@link #start()} for calls that are not timed. */
+    private static final long NOT_TIMED = Long.MIN_VALUE;
+
+    private final String name;
+    private final int sampleMask;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /**
+     * Constructs a new {@code CallStats}.
+     *
+     * @param name        The name of the function or operation.
+     * @param sampleEvery Times one call in this many, on average; rounded up
+     *                    to a power of two. 1 times every call.
+     */
+    public CallStats(String name, int sampleEvery) {
+        if (sampleEvery < 1 || sampleEvery > 1 << 30) {
+            throw new IllegalArgumentException("sampleEvery must be between 1 and 2^30: " + sampleEvery);
+        }
+        this.name = name;
+        this.sampleMask = sampleEvery == 1 ? 0 : (Integer.highestOneBit(sampleEvery - 1) << 1) - 1;
+    }
+
+    /**
+     * Counts a call and starts timing it if it is sampled.
+     *
+     * @return The token to pass to {@link #stop(long)}.
+     */
+    public long start() {
+        calls.increment();
+        return sampled() ? System.nanoTime() : NOT_TIMED;
+    }
+
+    /**
+     * Counts a run of calls made together, such as a batch over columns, and
+     * starts timing it if it is sampled.
+     *
+     * @param n The number of calls.
+     * @return The token to pass to {@link #stop(long, int)}.
+     */
+    public long start(int n) {
+        calls.add(n);
+        return sampled() ? System.nanoTime() : NOT_TIMED;
+    }
+
+    /**
+     * Records the latency of a call if it is timed.
+     *
+     * @param start The token returned by {@link #start()}.
+     */
+    public void stop(long start) {
+        if (start != NOT_TIMED) {
+            latency.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Records the mean latency of a run of calls if it is timed.
+     *
+     * @param start The token returned by {@link #start(int)}.
+     * @param n     The number of calls.
+     */
+    public void stop(long start, int n) {
+        if (start != NOT_TIMED && n > 0) {
+            latency.record((System.nanoTime() - start) / n);
+        }
+    }
+
+    /**
+     * Counts a call that threw an exception.
+     */
+    public void fail() {
+        errors.increment();
+    }
+
+    private boolean sampled() {
+        return sampleMask == 0 || (ThreadLocalRandom.current().nextInt() & sampleMask) == 0;
+    }
+
+    /**
+     * Gets the latency histogram of the timed calls.
+     *
+     * @return The histogram.
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getTimedCalls() {
+        return latency.count();
+    }
+
+    @Override
+    public double getMeanNanos() {
+        return latency.mean();
+    }
+
+    @Override
+    public long getP50Nanos() {
+        return latency.percentile(50);
+    }
+
+    @Override
+    public long getP99Nanos() {
+        return latency.percentile(99);
+    }
+
+    @Override
+    public long getP999Nanos() {
+        return latency.percentile(99.9);
+    }
+
+    @Override
+    public long getMaxNanos() {
+        return latency.max();
+    }
+}
@@ -0,0 +1,99 @@
+package com.modulo.metrics;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+/**
+ * Management view of a {@link CallStats}, registered as
+ * {@code com.modulo:type=Function,name=...} for every function and
+ * {@code com.modulo:type=Engine,name=parse|evaluate|escalate} for the engine.
+ * <p>
+ * Latencies are estimated from the timed sample of the calls and reported
+ * in nanoseconds.
+ * </p>
+ */
+public interface CallStatsMXBean {
+
+    /**
+     * Gets the name of the function or engine operation.
+     *
+     * @return The name.
+     */
+    String getName();
+
+    /**
+     * Gets the number of calls, including failed ones.
+     *
+     * @return The call count.
+     */
+    long getCalls();
+
+    /**
+     * Gets the number of calls that threw an exception.
+     *
+     * @return The error count.
+     */
+    long getErrors();
+
+    /**
+     * Gets the number of calls that were timed.
+     *
+     * @return The sample size of the latency figures.
+     */
+    long getTimedCalls();
+
+    /**
+     * Gets the mean latency.
+     *
+     * @return The mean in nanoseconds.
+     */
+    double getMeanNanos();
+
+    /**
+     * Gets the median latency.
+     *
+     * @return The 50th percentile in nanoseconds.
+     */
+    long getP50Nanos();
+
+    /**
+     * Gets the 99th percentile latency.
+     *
+     * @return The 99th percentile in nanoseconds.
+     */
+    long getP99Nanos();
+
+    /**
+     * Gets the 99.9th percentile latency.
+     *
+     * @return The 99.9th percentile in nanoseconds.
+     */
+    long getP999Nanos();
+
+    /**
+     * Gets the longest timed call.
+     *
+     * @return The maximum in nanoseconds.
+     */
+    long getMaxNanos();
+}
@@ -0,0 +1,52 @@
+package com.modulo.metrics;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import com.modulo.internal.ArrayFunction;
+import com.modulo.internal.CalcFunction;
+
+/**
+ * A {@link MeteredFunction} of an {@link ArrayFunction}, which keeps the
+ * column path of batch evaluation. A column counts as one call per element.
+ */
+final class MeteredArrayFunction extends MeteredFunction implements ArrayFunction {
+
+    private final ArrayFunction array;
+
+    MeteredArrayFunction(CalcFunction delegate, CallStats stats) {
+        super(delegate, stats);
+        this.array = (ArrayFunction) delegate;
+    }
+
+    @Override
+    public void executeArray(double[][] args, double[] out, int length) {
+        long start = stats.start(length);
+        try {
+            array.executeArray(args, out, length);
+            stats.stop(start, length);
+        } catch (RuntimeException e) {
+            stats.fail();
+            throw e;
+        }
+    }
+}
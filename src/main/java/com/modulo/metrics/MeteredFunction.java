@@ -0,0 +1,194 @@
+package com.modulo.metrics;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import com.modulo.internal.ArrayFunction;
+import com.modulo.internal.BinaryFunction;
+import com.modulo.internal.CachePolicy;
+import com.modulo.internal.CalcFunction;
+import com.modulo.internal.NullaryFunction;
+import com.modulo.internal.TernaryFunction;
+import com.modulo.internal.UnaryFunction;
+
+/**
+ * Counts the calls and errors of a function and times a sample of them in
+ * its {@link CallStats}.
+ * <p>
+ * The registry wraps every function it loads, outside the result cache, so
+ * cached calls are counted too. The wrapper keeps the function's arity and
+ * calls its fixed-arity or {@link ArrayFunction} view when it has one.
+ * </p>
+ */
+public class MeteredFunction
+        implements NullaryFunction, UnaryFunction, BinaryFunction, TernaryFunction {
+
+    final CalcFunction delegate;
+    final CallStats stats;
+    private final int arity;
+
+    // The delegate's fixed-arity view, when it has one
+    private final NullaryFunction nullary;
+    private final UnaryFunction unary;
+    private final BinaryFunction binary;
+    private final TernaryFunction ternary;
+
+    MeteredFunction(CalcFunction delegate, CallStats stats) {
+        this.delegate = delegate;
+        this.stats = stats;
+        this.arity = delegate.getArgCount();
+        this.nullary = arity == 0 && delegate instanceof NullaryFunction n ? n : null;
+        this.unary = arity == 1 && delegate instanceof UnaryFunction u ? u : null;
+        this.binary = arity == 2 && delegate instanceof BinaryFunction b ? b : null;
+        this.ternary = arity == 3 && delegate instanceof TernaryFunction t ? t : null;
+    }
+
+    /**
+     * Adds call metrics to a function.
+     *
+     * @param function The function.
+     * @return A metering wrapper, or the function itself if metrics are
+     *         disabled.
+     */
+    public static CalcFunction wrap(CalcFunction function) {
+        if (!Metrics.isEnabled() || function instanceof MeteredFunction) {
+            return function;
+        }
+        CallStats stats = Metrics.function(function.getName());
+        return function instanceof ArrayFunction
+                ? new MeteredArrayFunction(function, stats)
+                : new MeteredFunction(function, stats);
+    }
+
+    /**
+     * Gets the wrapped function.
+     *
+     * @return The function being metered.
+     */
+    public CalcFunction getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Gets the call counters of this function.
+     *
+     * @return The call statistics.
+     */
+    public CallStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public String getInsertText() {
+        return delegate.getInsertText();
+    }
+
+    @Override
+    public int getArgCount() {
+        return arity;
+    }
+
+    @Override
+    public boolean isPure() {
+        return delegate.isPure();
+    }
+
+    @Override
+    public CachePolicy getCachePolicy() {
+        return delegate.getCachePolicy();
+    }
+
+    @Override
+    public double execute(double... args) {
+        long start = stats.start();
+        try {
+            double result = delegate.execute(args);
+            stats.stop(start);
+            return result;
+        } catch (RuntimeException e) {
+            stats.fail();
+            throw e;
+        }
+    }
+
+    @Override
+    public double execute() {
+        long start = stats.start();
+        try {
+            double result = nullary != null ? nullary.execute() : delegate.execute();
+            stats.stop(start);
+            return result;
+        } catch (RuntimeException e) {
+            stats.fail();
+            throw e;
+        }
+    }
+
+    @Override
+    public double execute(double x) {
+        long start = stats.start();
+        try {
+            double result = unary != null ? unary.execute(x) : delegate.execute(x);
+            stats.stop(start);
+            return result;
+        } catch (RuntimeException e) {
+            stats.fail();
+            throw e;
+        }
+    }
+
+    @Override
+    public double execute(double a, double b) {
+        long start = stats.start();
+        try {
+            double result = binary != null ? binary.execute(a, b) : delegate.execute(a, b);
+            stats.stop(start);
+            return result;
+        } catch (RuntimeException e) {
+            stats.fail();
+            throw e;
+        }
+    }
+
+    @Override
+    public double execute(double a, double b, double c) {
+        long start = stats.start();
+        try {
+            double result = ternary != null ? ternary.execute(a, b, c) : delegate.execute(a, b, c);
+            stats.stop(start);
+            return result;
+        } catch (RuntimeException e) {
+            stats.fail();
+            throw e;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "metered " + delegate;
+    }
+}
@@ -0,0 +1,275 @@
+package com.modulo.metrics;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import com.modulo.format.DoubleFormatter;
+import com.modulo.internal.ConfigLoader;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide call metrics of the engine and the registered functions.
+ * <p>
+ * Parsing, evaluation, the decimal re-evaluations of the hybrid numeric mode
+ * and every function loaded by the registry record their calls, errors and
+ * latencies in a {@link CallStats}. Function stats
+ * are kept by name, so they carry on across reloads of a plugin. Everything
+ * is published as MXBeans under the {@code com.modulo} domain and can be
+ * dumped in the OpenMetrics text format with {@link #writeOpenMetrics(StringBuilder)}.
+ * </p>
+ * <p>
+ * Configured under {@code metrics} in {@code application.yml}:
+ * {@code enabled} turns recording on or off, {@code sampleEvery} sets how
+ * many calls of a function or evaluation go by per timed call (parses and
+ * re-evaluations are always timed), and {@code jmx} controls the MXBeans. They are read once, at
+ * startup.
+ * </p>
+ */
+public final class Metrics {
+
+    private static final String DOMAIN = "com.modulo";
+
+    private static final boolean ENABLED = ConfigLoader.current().isMetricsEnabled();
+    private static final boolean JMX = ConfigLoader.current().isMetricsJmx();
+    private static final int SAMPLE_EVERY = ConfigLoader.current().getMetricsSampleEvery();
+
+    private static final CallStats PARSE = new CallStats("parse", 1);
+    private static final CallStats EVALUATE = new CallStats("evaluate", SAMPLE_EVERY);
+    private static final CallStats ESCALATE = new CallStats("escalate", 1);
+    private static final ConcurrentHashMap<String, CallStats> FUNCTIONS = new ConcurrentHashMap<>();
+
+    static {
+        if (ENABLED) {
+            register("Engine", PARSE);
+            register("Engine", EVALUATE);
+            register("Engine", ESCALATE);
+        }
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * Checks whether metrics are recorded.
+     *
+     * @return {@code false} if {@code metrics.enabled} is off.
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Gets the stats of expression parsing.
+     *
+     * @return The parse stats.
+     */
+    public static CallStats parse() {
+        return PARSE;
+    }
+
+    /**
+     * Gets the stats of whole-expression evaluation.
+     *
+     * @return The evaluation stats.
+     */
+    public static CallStats evaluate() {
+        return EVALUATE;
+    }
+
+    /**
+     * Gets the stats of the decimal re-evaluations of the hybrid numeric
+     * mode.
+     *
+     * @return The escalation stats.
+     */
+    public static CallStats escalate() {
+        return ESCALATE;
+    }
+
+    /**
+     * Gets the stats of a function, creating and publishing them on first
+     * use.
+     *
+     * @param name The function name.
+     * @return The function stats.
+     */
+    public static CallStats function(String name) {
+        CallStats stats = FUNCTIONS.get(name);
+        if (stats == null) {
+            CallStats created = new CallStats(name, SAMPLE_EVERY);
+            stats = FUNCTIONS.putIfAbsent(name, created);
+            if (stats == null) {
+                stats = created;
+                register("Function", created);
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Gets the stats of every function that has been loaded.
+     *
+     * @return The function stats, sorted by name.
+     */
+    public static List<CallStats> functions() {
+        List<CallStats> list = new ArrayList<>(FUNCTIONS.values());
+        list.sort(Comparator.comparing(CallStats::getName));
+        return list;
+    }
+
+    /**
+     * Registers an MXBean off the calling thread; starting the platform
+     * MBean server takes longer than loading the functions.
+     */
+    private static void register(String type, CallStats stats) {
+        if (!JMX) {
+            return;
+        }
+        Thread.ofVirtual().name("metrics-jmx").start(() -> {
+            try {
+                ObjectName name = new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(stats.getName()));
+                ManagementFactory.getPlatformMBeanServer().registerMBean(stats, name);
+            } catch (JMException e) {
+                System.err.println("Cannot publish metrics of " + stats.getName() + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Appends all metrics in the OpenMetrics text format.
+     * <p>
+     * Each operation is a counter of calls, a counter of errors and a summary
+     * of latency in seconds, whose quantiles, sum and count cover the timed
+     * calls only. Function metrics carry a {@code function} label.
+     * </p>
+     *
+     * @param sb The builder to append to.
+     */
+    public static void writeOpenMetrics(StringBuilder sb) {
+        List<CallStats> functions = functions();
+
+        family(sb, "modulator_parse_calls", "counter", "Expressions parsed.");
+        counter(sb, "modulator_parse_calls", null, PARSE.getCalls());
+        family(sb, "modulator_parse_errors", "counter", "Expressions that failed to parse.");
+        counter(sb, "modulator_parse_errors", null, PARSE.getErrors());
+        family(sb, "modulator_parse_latency_seconds", "summary", "Time to parse an expression.");
+        summary(sb, "modulator_parse_latency_seconds", null, PARSE.getLatency());
+
+        family(sb, "modulator_evaluate_calls", "counter", "Expressions evaluated.");
+        counter(sb, "modulator_evaluate_calls", null, EVALUATE.getCalls());
+        family(sb, "modulator_evaluate_errors", "counter", "Evaluations that threw an error.");
+        counter(sb, "modulator_evaluate_errors", null, EVALUATE.getErrors());
+        family(sb, "modulator_evaluate_latency_seconds", "summary", "Time to evaluate a parsed expression.");
+        summary(sb, "modulator_evaluate_latency_seconds", null, EVALUATE.getLatency());
+
+        family(sb, "modulator_escalate_calls", "counter", "Hybrid evaluations redone in decimal.");
+        counter(sb, "modulator_escalate_calls", null, ESCALATE.getCalls());
+        family(sb, "modulator_escalate_errors", "counter", "Decimal re-evaluations that threw an error.");
+        counter(sb, "modulator_escalate_errors", null, ESCALATE.getErrors());
+        family(sb, "modulator_escalate_latency_seconds", "summary", "Time to redo a hybrid evaluation in decimal.");
+        summary(sb, "modulator_escalate_latency_seconds", null, ESCALATE.getLatency());
+
+        family(sb, "modulator_function_calls", "counter", "Function calls.");
+        for (CallStats f : functions) {
+            counter(sb, "modulator_function_calls", f.getName(), f.getCalls());
+        }
+        family(sb, "modulator_function_errors", "counter", "Function calls that threw an error.");
+        for (CallStats f : functions) {
+            counter(sb, "modulator_function_errors", f.getName(), f.getErrors());
+        }
+        family(sb, "modulator_function_latency_seconds", "summary", "Time spent in a function call.");
+        for (CallStats f : functions) {
+            summary(sb, "modulator_function_latency_seconds", f.getName(), f.getLatency());
+        }
+        sb.append("# EOF\n");
+    }
+
+    private static void family(StringBuilder sb, String name, String type, String help) {
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        if (name.endsWith("_seconds")) {
+            sb.append("# UNIT ").append(name).append(" seconds\n");
+        }
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    }
+
+    private static void counter(StringBuilder sb, String name, String function, long value) {
+        sb.append(name).append("_total");
+        labels(sb, function, null);
+        sb.append(' ').append(value).append('\n');
+    }
+
+    private static void summary(StringBuilder sb, String name, String function, LatencyHistogram latency) {
+        if (latency.count() > 0) {
+            quantile(sb, name, function, "0.5", latency.percentile(50));
+            quantile(sb, name, function, "0.99", latency.percentile(99));
+            quantile(sb, name, function, "0.999", latency.percentile(99.9));
+        }
+        sb.append(name).append("_sum");
+        labels(sb, function, null);
+        sb.append(' ');
+        DoubleFormatter.SHORTEST.appendTo(sb, latency.total() / 1e9).append('\n');
+        sb.append(name).append("_count");
+        labels(sb, function, null);
+        sb.append(' ').append(latency.count()).append('\n');
+    }
+
+    private static void quantile(StringBuilder sb, String name, String function, String q, long nanos) {
+        sb.append(name);
+        labels(sb, function, q);
+        sb.append(' ');
+        DoubleFormatter.SHORTEST.appendTo(sb, nanos / 1e9).append('\n');
+    }
+
+    private static void labels(StringBuilder sb, String function, String quantile) {
+        if (function == null && quantile == null) {
+            return;
+        }
+        sb.append('{');
+        if (function != null) {
+            sb.append("function=\"");
+            for (int i = 0; i < function.length(); i++) {
+                char c = function.charAt(i);
+                switch (c) {
+                    case '\\' -> sb.append("\\\\");
+                    case '"' -> sb.append("\\\"");
+                    case '\n' -> sb.append("\\n");
+                    default -> sb.append(c);
+                }
+            }
+            sb.append('"');
+            if (quantile != null) {
+                sb.append(',');
+            }
+        }
+        if (quantile != null) {
+            sb.append("quantile=\"").append(quantile).append('"');
+        }
+        sb.append('}');
+    }
+}
@@ -0,0 +1,242 @@
+package com.modulo.processor;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The plugin index written by {@link FunctionIndexProcessor} and read by the
+ * {@link com.modulo.Registry.FunctionRegistry}.
+ * <p>
+ * The index is a UTF-8 text resource at {@value #RESOURCE} with one entry per
+ * line: the entry kind and the binary class name, separated by a tab. Blank
+ * lines and lines starting with {@code #} are ignored, as are any further
+ * tab-separated fields, so the format can grow without breaking older
+ * readers. Every jar built with the processor carries its own index.
+ * </p>
+ * <p>
+ * Entries for {@code @Function} classes also carry the function's
+ * {@link Metadata} as further {@code key=value} fields, which lets the
+ * registry register the function without loading its class. Tabs, line
+ * breaks and backslashes in values are escaped with a backslash.
+ * </p>
+ */
+public final class FunctionIndex {
+
+    /**
+     * The location of the index within a jar or class output directory.
+     */
+    public static final String RESOURCE = "META-INF/modulator/functions.idx";
+
+    private FunctionIndex() {
+    }
+
+    /**
+     * The kinds of class listed in the index.
+     */
+    public enum Kind {
+        /**
+         * A class implementing {@code CalcFunction}.
+         */
+        FUNCTION,
+
+        /**
+         * A class annotated with {@code @Function}.
+         */
+        ANNOTATED
+    }
+
+    /**
+     * A single indexed class.
+     *
+     * @param kind      How the class is registered.
+     * @param className The binary name of the class.
+     * @param metadata  What the function declares about itself, or
+     *                  {@code null} if it is only known once the class is
+     *                  instantiated.
+     */
+    public record Entry(Kind kind, String className, Metadata metadata) {
+
+        /**
+         * Creates an entry without metadata.
+         *
+         * @param kind      How the class is registered.
+         * @param className The binary name of the class.
+         */
+        public Entry(Kind kind, String className) {
+            this(kind, className, null);
+        }
+    }
+
+    /**
+     * The declaration of an {@code @Function} class, as read from its
+     * annotation and {@code run(...)} method at compile time.
+     *
+     * @param name      The function name.
+     * @param insert    The text to insert into the input field.
+     * @param arity     The number of {@code run} parameters, or -1 for a
+     *                  single {@code double[]}.
+     * @param pure      Whether results may be cached.
+     * @param cacheSize The maximum number of cached results.
+     * @param eviction  The name of the cache eviction strategy.
+     * @param ttlMillis How long cached results stay valid.
+     */
+    public record Metadata(String name, String insert, int arity, boolean pure, int cacheSize,
+            String eviction, long ttlMillis) {
+    }
+
+    /**
+     * Reads an index.
+     *
+     * @param in The index contents; not closed.
+     * @return The entries, in file order.
+     * @throws IOException If the index cannot be read or is malformed.
+     */
+    public static List<Entry> read(InputStream in) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\t");
+            if (fields.length < 2) {
+                throw new IOException("Malformed index entry at line " + lineNumber + ": " + line);
+            }
+            Kind kind;
+            try {
+                kind = Kind.valueOf(fields[0]);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Unknown index entry kind at line " + lineNumber + ": " + fields[0]);
+            }
+            entries.add(new Entry(kind, fields[1], readMetadata(fields)));
+        }
+        return entries;
+    }
+
+    /**
+     * Reads the {@code key=value} fields after the class name.
+     *
+     * @return The metadata, or {@code null} if any of it is missing or
+     *         malformed.
+     */
+    private static Metadata readMetadata(String[] fields) {
+        Map<String, String> values = new HashMap<>();
+        for (int i = 2; i < fields.length; i++) {
+            int eq = fields[i].indexOf('=');
+            if (eq > 0) {
+                values.put(fields[i].substring(0, eq), unescape(fields[i].substring(eq + 1)));
+            }
+        }
+        String name = values.get("name");
+        String insert = values.get("insert");
+        String eviction = values.get("eviction");
+        if (name == null || insert == null || eviction == null) {
+            return null;
+        }
+        try {
+            return new Metadata(name, insert, Integer.parseInt(values.get("arity")),
+                    Boolean.parseBoolean(values.get("pure")), Integer.parseInt(values.get("cacheSize")),
+                    eviction, Long.parseLong(values.get("ttlMillis")));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes an index.
+     *
+     * @param entries The entries to write.
+     * @param out     The destination; not closed.
+     * @throws IOException If writing fails.
+     */
+    public static void write(Collection<Entry> entries, Writer out) throws IOException {
+        out.write("# Generated by " + FunctionIndexProcessor.class.getName() + ". Do not edit.\n");
+        for (Entry e : entries) {
+            out.write(e.kind().name());
+            out.write('\t');
+            out.write(e.className());
+            Metadata m = e.metadata();
+            if (m != null) {
+                field(out, "name", m.name());
+                field(out, "insert", m.insert());
+                field(out, "arity", Integer.toString(m.arity()));
+                field(out, "pure", Boolean.toString(m.pure()));
+                field(out, "cacheSize", Integer.toString(m.cacheSize()));
+                field(out, "eviction", m.eviction());
+                field(out, "ttlMillis", Long.toString(m.ttlMillis()));
+            }
+            out.write('\n');
+        }
+    }
+
+    private static void field(Writer out, String key, String value) throws IOException {
+        out.write('\t');
+        out.write(key);
+        out.write('=');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> out.write("\\\\");
+                case '\t' -> out.write("\\t");
+                case '\n' -> out.write("\\n");
+                case '\r' -> out.write("\\r");
+                default -> out.write(c);
+            }
+        }
+    }
+
+    private static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                c = switch (value.charAt(++i)) {
+                    case 't' -> '\t';
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    default -> value.charAt(i);
+                };
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+}
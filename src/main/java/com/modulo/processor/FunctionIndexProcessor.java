@@ -0,0 +1,331 @@
+package com.modulo.processor;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Annotation processor that writes the {@link FunctionIndex} at compile time,
+ * so the registry can load plugins without scanning the classpath.
+ * <p>
+ * Every public, concrete, top-level or static nested class that implements
+ * {@code com.modulo.internal.CalcFunction} or is annotated with
+ * {@code @com.modulo.internal.Function} is indexed, provided it has a public
+ * no-argument constructor. An annotated class that cannot be instantiated is
+ * reported as a compile error instead of failing at startup.
+ * </p>
+ * <p>
+ * The processor is registered through {@code META-INF/services}, so plugin
+ * jars compiled against Modulator get their own index automatically. The
+ * {@value #PACKAGES_OPTION} option (a comma-separated list of package
+ * prefixes) limits indexing to the given packages. Entries from a previous,
+ * incremental compilation are kept as long as their classes still exist.
+ * </p>
+ */
+@SupportedAnnotationTypes("*")
+@SupportedOptions(FunctionIndexProcessor.PACKAGES_OPTION)
+public class FunctionIndexProcessor extends AbstractProcessor {
+
+    /**
+     * Processor option restricting the indexed packages.
+     */
+    public static final String PACKAGES_OPTION = "modulator.packages";
+
+    private static final String CALC_FUNCTION = "com.modulo.internal.CalcFunction";
+    private static final String FUNCTION_ANNOTATION = "com.modulo.internal.Function";
+    private static final Set<String> NUMERIC_WRAPPERS = Set.of("java.lang.Double", "java.lang.Float",
+            "java.lang.Long", "java.lang.Integer", "java.lang.Short", "java.lang.Byte");
+
+    private final Map<String, FunctionIndex.Entry> entries = new TreeMap<>();
+    private final List<String> packages = new ArrayList<>();
+    private TypeMirror calcFunction;
+    private boolean previousIndexRead;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public synchronized void init(ProcessingEnvironment env) {
+        super.init(env);
+        TypeElement type = env.getElementUtils().getTypeElement(CALC_FUNCTION);
+        calcFunction = type == null ? null : env.getTypeUtils().erasure(type.asType());
+        String option = env.getOptions().get(PACKAGES_OPTION);
+        if (option != null) {
+            for (String p : option.split(",")) {
+                if (!p.isBlank()) {
+                    packages.add(p.strip());
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        if (calcFunction == null) {
+            // Not compiling against Modulator; nothing can be a plugin
+            return false;
+        }
+        if (!previousIndexRead) {
+            previousIndexRead = true;
+            readPreviousIndex();
+        }
+        for (TypeElement type : ElementFilter.typesIn(round.getRootElements())) {
+            if (isIndexedPackage(type)) {
+                visit(type);
+            }
+        }
+        if (round.processingOver()) {
+            writeIndex();
+        }
+        return false;
+    }
+
+    private boolean isIndexedPackage(TypeElement type) {
+        if (packages.isEmpty()) {
+            return true;
+        }
+        String name = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        for (String p : packages) {
+            if (name.equals(p) || name.startsWith(p + ".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void visit(TypeElement type) {
+        Elements elements = processingEnv.getElementUtils();
+        String binaryName = elements.getBinaryName(type).toString();
+        entries.remove(binaryName);
+
+        FunctionIndex.Kind kind = kindOf(type);
+        if (kind != null && isInstantiable(type, kind)) {
+            FunctionIndex.Metadata metadata = kind == FunctionIndex.Kind.ANNOTATED ? metadataOf(type) : null;
+            entries.put(binaryName, new FunctionIndex.Entry(kind, binaryName, metadata));
+        }
+        for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+            visit(nested);
+        }
+    }
+
+    private FunctionIndex.Kind kindOf(TypeElement type) {
+        if (type.getKind() != ElementKind.CLASS) {
+            return null;
+        }
+        Types types = processingEnv.getTypeUtils();
+        if (types.isAssignable(types.erasure(type.asType()), calcFunction)) {
+            return FunctionIndex.Kind.FUNCTION;
+        }
+        if (hasFunctionAnnotation(type)) {
+            return FunctionIndex.Kind.ANNOTATED;
+        }
+        return null;
+    }
+
+    private static boolean hasFunctionAnnotation(Element element) {
+        return functionAnnotation(element) != null;
+    }
+
+    private static AnnotationMirror functionAnnotation(Element element) {
+        for (AnnotationMirror a : element.getAnnotationMirrors()) {
+            if (((TypeElement) a.getAnnotationType().asElement()).getQualifiedName()
+                    .contentEquals(FUNCTION_ANNOTATION)) {
+                return a;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads what an {@code @Function} class declares, so the registry can list
+     * it without loading the class.
+     *
+     * @return The metadata, or {@code null} if the {@code run(...)} method is
+     *         missing or not usable; the class is then loaded eagerly, which
+     *         reports the problem.
+     */
+    private FunctionIndex.Metadata metadataOf(TypeElement type) {
+        int arity = runArity(type);
+        if (arity == Integer.MIN_VALUE) {
+            return null;
+        }
+        Map<String, Object> values = new HashMap<>();
+        processingEnv.getElementUtils().getElementValuesWithDefaults(functionAnnotation(type))
+                .forEach((method, value) -> values.put(method.getSimpleName().toString(), value.getValue()));
+        Object eviction = values.get("eviction");
+        return new FunctionIndex.Metadata(
+                (String) values.get("name"),
+                (String) values.get("insert"),
+                arity,
+                (Boolean) values.get("pure"),
+                (Integer) values.get("cacheSize"),
+                eviction instanceof VariableElement e ? e.getSimpleName().toString() : String.valueOf(eviction),
+                (Long) values.get("ttlMillis"));
+    }
+
+    /**
+     * Finds the arity of the single {@code run(...)} method, with the rules of
+     * {@code AnnotatedFunctionAdapter}.
+     *
+     * @return The number of {@code double} parameters, -1 for a single
+     *         {@code double[]}, or {@link Integer#MIN_VALUE} if there is no
+     *         usable {@code run} method.
+     */
+    private static int runArity(TypeElement type) {
+        ExecutableElement run = null;
+        for (ExecutableElement m : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            if (m.getSimpleName().contentEquals("run")) {
+                if (run != null) {
+                    return Integer.MIN_VALUE;
+                }
+                run = m;
+            }
+        }
+        if (run == null || !run.getModifiers().contains(Modifier.PUBLIC) || !isNumeric(run.getReturnType())) {
+            return Integer.MIN_VALUE;
+        }
+        List<? extends VariableElement> params = run.getParameters();
+        if (params.size() == 1 && params.get(0).asType() instanceof ArrayType array
+                && array.getComponentType().getKind() == TypeKind.DOUBLE) {
+            return -1;
+        }
+        for (VariableElement p : params) {
+            if (p.asType().getKind() != TypeKind.DOUBLE) {
+                return Integer.MIN_VALUE;
+            }
+        }
+        return params.size();
+    }
+
+    private static boolean isNumeric(TypeMirror type) {
+        return switch (type.getKind()) {
+            case DOUBLE, FLOAT, LONG, INT, SHORT, BYTE -> true;
+            case DECLARED -> NUMERIC_WRAPPERS.contains(
+                    ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString());
+            default -> false;
+        };
+    }
+
+    private boolean isInstantiable(TypeElement type, FunctionIndex.Kind kind) {
+        String problem = null;
+        Set<Modifier> modifiers = type.getModifiers();
+        if (modifiers.contains(Modifier.ABSTRACT)) {
+            problem = "must not be abstract";
+        } else if (!modifiers.contains(Modifier.PUBLIC)) {
+            problem = "must be public";
+        } else if (type.getNestingKind() == NestingKind.MEMBER && !modifiers.contains(Modifier.STATIC)) {
+            problem = "must be static if nested";
+        } else if (type.getNestingKind() != NestingKind.TOP_LEVEL && type.getNestingKind() != NestingKind.MEMBER) {
+            problem = "must be a top-level or nested class";
+        } else if (!hasPublicNoArgConstructor(type)) {
+            problem = "needs a public no-argument constructor";
+        }
+        if (problem == null) {
+            return true;
+        }
+        // Helper implementations of CalcFunction (adapters, wrappers) are simply
+        // not plugins; only an explicit @Function is a mistake worth failing on
+        if (kind == FunctionIndex.Kind.ANNOTATED) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "@Function class " + type.getQualifiedName() + " " + problem, type);
+        }
+        return false;
+    }
+
+    private static boolean hasPublicNoArgConstructor(TypeElement type) {
+        for (ExecutableElement c : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (c.getParameters().isEmpty() && c.getModifiers().contains(Modifier.PUBLIC)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void readPreviousIndex() {
+        Elements elements = processingEnv.getElementUtils();
+        try {
+            FileObject previous = processingEnv.getFiler()
+                    .getResource(StandardLocation.CLASS_OUTPUT, "", FunctionIndex.RESOURCE);
+            try (InputStream in = previous.openInputStream()) {
+                for (FunctionIndex.Entry e : FunctionIndex.read(in)) {
+                    // Drop classes that were deleted since the last build
+                    if (elements.getTypeElement(e.className().replace('$', '.')) != null) {
+                        entries.put(e.className(), e);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // No previous index, which is the normal case for a clean build
+        }
+    }
+
+    private void writeIndex() {
+        Filer filer = processingEnv.getFiler();
+        try {
+            FileObject file = filer.createResource(StandardLocation.CLASS_OUTPUT, "", FunctionIndex.RESOURCE);
+            try (Writer out = new OutputStreamWriter(file.openOutputStream(), StandardCharsets.UTF_8)) {
+                FunctionIndex.write(entries.values(), out);
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Failed to write " + FunctionIndex.RESOURCE + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,453 @@
+package com.modulo.server;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import com.modulo.Registry.FunctionRegistry;
+import com.modulo.cli.BatchCalculator;
+import com.modulo.engine.CalculatorEngine;
+import com.modulo.engine.NumericMode;
+import com.modulo.engine.ExpressionCache;
+import com.modulo.engine.FunctionSet;
+import com.modulo.engine.Optimizer;
+import com.modulo.format.DoubleFormatter;
+import com.modulo.internal.Config;
+import com.modulo.internal.ConfigLoader;
+import com.modulo.metrics.Metrics;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local HTTP service for the calculator engine.
+ * <p>
+ * Built on the JDK's {@link HttpServer}; every request runs on its own virtual
+ * thread. Endpoints:
+ * </p>
+ * <ul>
+ * <li>{@code /evaluate} &mdash; evaluates one expression, given as the
+ * {@code expr} query parameter or as the request body. Other query parameters
+ * declare variables in order, e.g. {@code /evaluate?expr=x*y&x=2&y=3}. The
+ * expression is compiled once and kept in an expression cache shared by all
+ * requests. In the decimal {@linkplain NumericMode numeric mode} variables are
+ * read as decimals and the result has all the digits of the engine's
+ * {@code MathContext}.</li>
+ * <li>{@code /batch} &mdash; evaluates the lines of a {@code POST} body and
+ * returns one result line per input line, as the
+ * {@linkplain BatchCalculator batch mode} does, always in {@code double}.</li>
+ * <li>{@code /stats} &mdash; request, error, latency and throughput counters
+ * per endpoint, and cache and optimizer statistics, as JSON.</li>
+ * <li>{@code /metrics} &mdash; the engine and per-function
+ * {@linkplain Metrics call metrics} in the OpenMetrics text format.</li>
+ * </ul>
+ * <p>
+ * Results are plain text. Invalid expressions get status 400 with
+ * {@code error: } and a message; bodies over the configured limits get 413.
+ * The server follows {@link FunctionRegistry#reload()} by switching to a new
+ * engine.
+ * </p>
+ */
+public final class CalculatorServer implements Closeable {
+
+    private static final String TEXT = "text/plain; charset=utf-8";
+    private static final String JSON = "application/json";
+    private static final String OPENMETRICS = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    static {
+        // The JDK server leaves Nagle's algorithm on by default, which holds
+        // small keep-alive responses back until the client's delayed ACK
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer http;
+    private final ExecutorService executor;
+    private final int maxBodyBytes;
+    private final int maxBatchBytes;
+    private final long started = System.nanoTime();
+    private final EndpointStats evaluateStats = new EndpointStats();
+    private final EndpointStats batchStats = new EndpointStats();
+    private volatile State state;
+    private volatile boolean closed;
+
+    /**
+     * What requests evaluate against; replaced as a whole on reload.
+     */
+    private record State(CalculatorEngine engine, BatchCalculator batch) {
+        State(FunctionSet functions, int cacheSize, NumericMode mode, MathContext context) {
+            this(new CalculatorEngine(functions, cacheSize, mode, context), new BatchCalculator(functions, 1));
+        }
+    }
+
+    /**
+     * Creates a server; call {@link #start()} to accept requests.
+     *
+     * @param address       The address to listen on.
+     * @param cacheSize     The number of compiled expressions to keep.
+     * @param maxBodyBytes  The largest accepted expression, in bytes.
+     * @param maxBatchBytes The largest accepted batch body, in bytes.
+     * @throws IOException If the address cannot be bound.
+     */
+    public CalculatorServer(InetSocketAddress address, int cacheSize, int maxBodyBytes, int maxBatchBytes)
+            throws IOException {
+        this(address, cacheSize, maxBodyBytes, maxBatchBytes, NumericMode.DOUBLE, MathContext.DECIMAL128);
+    }
+
+    /**
+     * Creates a server that evaluates {@code /evaluate} requests in a given
+     * numeric mode; call {@link #start()} to accept requests.
+     *
+     * @param address       The address to listen on.
+     * @param cacheSize     The number of compiled expressions to keep.
+     * @param maxBodyBytes  The largest accepted expression, in bytes.
+     * @param maxBatchBytes The largest accepted batch body, in bytes.
+     * @param mode          The arithmetic of {@code /evaluate}.
+     * @param context       The precision of the decimal and hybrid modes.
+     * @throws IOException If the address cannot be bound.
+     */
+    public CalculatorServer(InetSocketAddress address, int cacheSize, int maxBodyBytes, int maxBatchBytes,
+            NumericMode mode, MathContext context) throws IOException {
+        if (maxBodyBytes <= 0 || maxBatchBytes <= 0) {
+            throw new IllegalArgumentException("Request size limits must be positive");
+        }
+        this.maxBodyBytes = maxBodyBytes;
+        this.maxBatchBytes = maxBatchBytes;
+        this.state = new State(FunctionRegistry.snapshot(), cacheSize, mode, context);
+        this.http = HttpServer.create(address, 0);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        http.setExecutor(executor);
+        http.createContext("/evaluate", this::handleEvaluate);
+        http.createContext("/batch", this::handleBatch);
+        http.createContext("/stats", this::handleStats);
+        http.createContext("/metrics", this::handleMetrics);
+        FunctionRegistry.addReloadListener(() -> {
+            if (!closed) {
+                state = new State(FunctionRegistry.snapshot(), cacheSize, mode, context);
+            }
+        });
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        http.start();
+    }
+
+    /**
+     * Gets the address the server listens on, with the actual port if it was
+     * started on port 0.
+     *
+     * @return The bound address.
+     */
+    public InetSocketAddress getAddress() {
+        return http.getAddress();
+    }
+
+    /**
+     * Stops the server, letting requests in progress finish for up to a
+     * second.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        http.stop(1);
+        executor.shutdownNow();
+    }
+
+    private void handleEvaluate(HttpExchange exchange) throws IOException {
+        long begin = System.nanoTime();
+        EndpointStats stats = evaluateStats;
+        stats.requests.increment();
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("POST")) {
+                respond(exchange, stats, 405, TEXT, "error: Use GET or POST\n");
+                return;
+            }
+
+            String expr = null;
+            List<String> names = new ArrayList<>();
+            List<String> values = new ArrayList<>();
+            String query = exchange.getRequestURI().getRawQuery();
+            if (query != null) {
+                if (query.length() > maxBodyBytes) {
+                    reject(exchange, stats);
+                    return;
+                }
+                for (String param : query.split("&")) {
+                    int eq = param.indexOf('=');
+                    String name = decode(eq < 0 ? param : param.substring(0, eq));
+                    String value = eq < 0 ? "" : decode(param.substring(eq + 1));
+                    if (name.equals("expr")) {
+                        expr = value;
+                    } else if (!name.isEmpty()) {
+                        names.add(name);
+                        values.add(value);
+                    }
+                }
+            }
+            if (expr == null) {
+                byte[] body = readBody(exchange, maxBodyBytes);
+                if (body == null) {
+                    reject(exchange, stats);
+                    return;
+                }
+                stats.bytesIn.add(body.length);
+                expr = new String(body, StandardCharsets.UTF_8);
+            }
+
+            String result;
+            int status = 200;
+            try {
+                result = evaluate(state.engine(), expr.strip(), names, values) + "\n";
+                stats.expressions.increment();
+            } catch (RuntimeException e) {
+                status = 400;
+                result = "error: " + (e.getMessage() != null ? e.getMessage() : e.toString()) + "\n";
+            }
+            respond(exchange, stats, status, TEXT, result);
+        } finally {
+            stats.latency.record(System.nanoTime() - begin);
+        }
+    }
+
+    private void handleBatch(HttpExchange exchange) throws IOException {
+        long begin = System.nanoTime();
+        EndpointStats stats = batchStats;
+        stats.requests.increment();
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                respond(exchange, stats, 405, TEXT, "error: Use POST\n");
+                return;
+            }
+            byte[] body = readBody(exchange, maxBatchBytes);
+            if (body == null) {
+                reject(exchange, stats);
+                return;
+            }
+            stats.bytesIn.add(body.length);
+            StringBuilder out = new StringBuilder(body.length);
+            BatchCalculator.Report report = state.batch().evaluate(ByteBuffer.wrap(body), out);
+            stats.expressions.add(report.lines() - report.errors());
+            respond(exchange, stats, 200, TEXT, out);
+        } finally {
+            stats.latency.record(System.nanoTime() - begin);
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            double uptime = (System.nanoTime() - started) / 1e9;
+            CalculatorEngine engine = state.engine();
+            ExpressionCache.Stats cache = engine.getCacheStats();
+            Optimizer.Stats optimizer = engine.getOptimizationStats();
+            long total = evaluateStats.requests.sum() + batchStats.requests.sum();
+
+            StringBuilder sb = new StringBuilder(512);
+            sb.append("{\"uptimeSeconds\":").append(EndpointStats.decimal(uptime))
+                    .append(",\"requests\":").append(total)
+                    .append(",\"requestsPerSecond\":").append(EndpointStats.rate(total, uptime))
+                    .append(",\"functionsVersion\":").append(engine.getFunctions().getVersion())
+                    .append(",\"endpoints\":{\"evaluate\":");
+            evaluateStats.appendJson(sb, uptime);
+            sb.append(",\"batch\":");
+            batchStats.appendJson(sb, uptime);
+            sb.append("},\"expressionCache\":{\"hits\":").append(cache.hits())
+                    .append(",\"misses\":").append(cache.misses())
+                    .append(",\"evictions\":").append(cache.evictions())
+                    .append(",\"size\":").append(cache.size())
+                    .append("},\"optimizer\":{\"expressions\":").append(optimizer.expressions())
+                    .append(",\"foldedConstants\":").append(optimizer.foldedConstants())
+                    .append(",\"simplifications\":").append(optimizer.simplifications())
+                    .append(",\"sharedSubexpressions\":").append(optimizer.sharedSubexpressions())
+                    .append("}}\n");
+            respond(exchange, null, 200, JSON, sb);
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                respond(exchange, null, 405, TEXT, "error: Use GET\n");
+                return;
+            }
+            StringBuilder sb = new StringBuilder(4096);
+            Metrics.writeOpenMetrics(sb);
+            respond(exchange, null, 200, OPENMETRICS, sb);
+        }
+    }
+
+    /**
+     * Reads the request body if it is within the limit.
+     *
+     * @return The body, or {@code null} if it is too large.
+     */
+    private static byte[] readBody(HttpExchange exchange, int limit) throws IOException {
+        String length = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (length != null) {
+            try {
+                if (Long.parseLong(length.trim()) > limit) {
+                    return null;
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(limit + 1);
+            return body.length > limit ? null : body;
+        }
+    }
+
+    private static void reject(HttpExchange exchange, EndpointStats stats) throws IOException {
+        stats.rejected.increment();
+        respond(exchange, stats, 413, TEXT, "error: Request too large\n");
+    }
+
+    private static void respond(HttpExchange exchange, EndpointStats stats, int status, String type,
+            CharSequence body) throws IOException {
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        if (stats != null) {
+            stats.bytesOut.add(bytes.length);
+            if (status >= 400) {
+                stats.errors.increment();
+            }
+        }
+        exchange.getResponseHeaders().set("Content-Type", type);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String decode(String s) {
+        return URLDecoder.decode(s, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Evaluates an expression in the engine's numeric mode.
+     *
+     * @return The result, without a line break.
+     */
+    private static String evaluate(CalculatorEngine engine, String expr, List<String> names, List<String> values) {
+        String[] variables = names.toArray(new String[0]);
+        MathContext context = engine.getMathContext();
+        switch (engine.getNumericMode()) {
+            case DECIMAL -> {
+                BigDecimal[] vars = new BigDecimal[values.size()];
+                for (int i = 0; i < vars.length; i++) {
+                    vars[i] = parseDecimal(names.get(i), values.get(i));
+                }
+                BigDecimal result = engine.parse(expr, variables).evaluateDecimal(context, vars).stripTrailingZeros();
+                if (result.scale() < 0 && result.precision() - result.scale() <= context.getPrecision()) {
+                    // An integer that fits the precision, without an exponent
+                    result = result.setScale(0);
+                }
+                return result.toString();
+            }
+            case HYBRID -> {
+                double r = engine.parse(expr, variables).evaluateHybrid(context, parseValues(names, values));
+                return DoubleFormatter.SHORTEST.format(r);
+            }
+            default -> {
+                double r = engine.parse(expr, variables).evaluateCompiled(parseValues(names, values));
+                return DoubleFormatter.SHORTEST.format(r);
+            }
+        }
+    }
+
+    private static double[] parseValues(List<String> names, List<String> values) {
+        double[] vars = new double[values.size()];
+        for (int i = 0; i < vars.length; i++) {
+            vars[i] = parseValue(names.get(i), values.get(i));
+        }
+        return vars;
+    }
+
+    private static BigDecimal parseDecimal(String name, String value) {
+        try {
+            return new BigDecimal(value.strip());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for " + name + ": " + value);
+        }
+    }
+
+    private static double parseValue(String name, String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for " + name + ": " + value);
+        }
+    }
+
+    /**
+     * Runs the server until the process is stopped.
+     *
+     * @param args {@code [--host host] [--port port]}; defaults come from the
+     *             {@code server} section of {@code application.yml}.
+     */
+    public static void main(String[] args) {
+        Config config = ConfigLoader.current();
+        String host = config.getServerHost();
+        int port = config.getServerPort();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--host" -> host = args[i + 1];
+                case "--port" -> port = Integer.parseInt(args[i + 1]);
+                default -> {
+                    System.err.println("Usage: CalculatorServer [--host host] [--port port]");
+                    System.exit(2);
+                }
+            }
+        }
+
+        FunctionRegistry.loadFunctions();
+        try {
+            CalculatorServer server = new CalculatorServer(new InetSocketAddress(host, port),
+                    config.getServerCacheSize(), config.getServerMaxBodyBytes(), config.getServerMaxBatchBytes(),
+                    config.getNumericMode(), config.getMathContext());
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close, "server-shutdown"));
+            server.start();
+            InetSocketAddress bound = server.getAddress();
+            System.err.println("Listening on http://" + bound.getHostString() + ":" + bound.getPort());
+        } catch (IOException e) {
+            System.err.println("Failed to start server: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
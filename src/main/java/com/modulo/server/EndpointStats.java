@@ -0,0 +1,77 @@
+package com.modulo.server;
+/*
+ * MIT License
+ * Copyright (c) 2025 ztype764
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import com.modulo.metrics.LatencyHistogram;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request counters of one endpoint of the {@link CalculatorServer}.
+ */
+final class EndpointStats {
+
+    final LongAdder requests = new LongAdder();
+    final LongAdder errors = new LongAdder();
+    final LongAdder rejected = new LongAdder();
+    final LongAdder expressions = new LongAdder();
+    final LongAdder bytesIn = new LongAdder();
+    final LongAdder bytesOut = new LongAdder();
+    final LatencyHistogram latency = new LatencyHistogram();
+
+    /**
+     * Appends the counters as a JSON object.
+     *
+     * @param sb            The builder to append to.
+     * @param uptimeSeconds The time since the server started.
+     */
+    void appendJson(StringBuilder sb, double uptimeSeconds) {
+        long n = requests.sum();
+        sb.append("{\"requests\":").append(n)
+                .append(",\"errors\":").append(errors.sum())
+                .append(",\"rejected\":").append(rejected.sum())
+                .append(",\"expressions\":").append(expressions.sum())
+                .append(",\"bytesIn\":").append(bytesIn.sum())
+                .append(",\"bytesOut\":").append(bytesOut.sum())
+                .append(",\"requestsPerSecond\":").append(rate(n, uptimeSeconds))
+                .append(",\"latencyMicros\":{\"mean\":").append(micros(latency.mean()))
+                .append(",\"p50\":").append(micros(latency.percentile(50)))
+                .append(",\"p99\":").append(micros(latency.percentile(99)))
+                .append(",\"p999\":").append(micros(latency.percentile(99.9)))
+                .append(",\"max\":").append(micros(latency.max()))
+                .append("}}");
+    }
+
+    static String rate(long count, double seconds) {
+        return decimal(seconds > 0 ? count / seconds : 0);
+    }
+
+    static String decimal(double value) {
+        return String.format(Locale.ROOT, "%.1f", value);
+    }
+
+    private static String micros(double nanos) {
+        return decimal(nanos / 1000);
+    }
+}